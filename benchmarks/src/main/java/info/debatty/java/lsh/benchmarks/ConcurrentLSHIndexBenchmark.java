@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh.benchmarks;
+
+import info.debatty.java.lsh.ConcurrentLSHIndex;
+import info.debatty.java.lsh.LSHIndex;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of concurrent insertion in a ConcurrentLSHIndex, compared to an
+ * LSHIndex protected by a global lock. Run with an increasing number of
+ * threads to measure the scaling of insertion:
+ *
+ * <pre>
+ * for t in 1 2 4 8 16 32; do
+ *   java -jar target/benchmarks.jar ConcurrentLSHIndexBenchmark -t $t
+ * done
+ * </pre>
+ *
+ * The indexes are created again for each iteration, to bound memory usage.
+ *
+ * @author Thibault Debatty
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ConcurrentLSHIndexBenchmark {
+
+    private static final int HASHES = 4096;
+
+    @Param({"4", "16"})
+    private int stages;
+
+    @Param({"10000", "1000000"})
+    private int buckets;
+
+    private ConcurrentLSHIndex<Object> concurrent;
+    private LSHIndex<Object> global;
+
+    /**
+     * Random hashes, generated for each thread.
+     */
+    @State(Scope.Thread)
+    public static class Hashes {
+
+        private int[][] hashes;
+        private int next;
+
+        /**
+         * Generate the random hashes.
+         * @param benchmark
+         */
+        @Setup
+        public void setup(final ConcurrentLSHIndexBenchmark benchmark) {
+            Random rand = new Random(Thread.currentThread().getId());
+            hashes = new int[HASHES][benchmark.stages];
+            for (int[] hash : hashes) {
+                for (int s = 0; s < hash.length; s++) {
+                    hash[s] = rand.nextInt(benchmark.buckets);
+                }
+            }
+        }
+
+        int[] next() {
+            next = (next + 1) & (HASHES - 1);
+            return hashes[next];
+        }
+    }
+
+    /**
+     * Create empty indexes.
+     */
+    @Setup(Level.Iteration)
+    public void setup() {
+        concurrent = new ConcurrentLSHIndex<Object>(stages, buckets);
+        global = new LSHIndex<Object>(stages, buckets);
+    }
+
+    /**
+     * Add an item to the ConcurrentLSHIndex.
+     * @param hashes
+     * @return the id of the item
+     */
+    @Benchmark
+    public int add(final Hashes hashes) {
+        return concurrent.add(null, hashes.next());
+    }
+
+    /**
+     * Add an item to the LSHIndex, protected by a global lock.
+     * @param hashes
+     * @return the id of the item
+     */
+    @Benchmark
+    public int addGlobalLock(final Hashes hashes) {
+        int[] hash = hashes.next();
+        synchronized (global) {
+            return global.add(null, hash);
+        }
+    }
+
+    /**
+     * Add items while other threads query the index.
+     * @param hashes
+     * @return the id of the item
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public int mixedAdd(final Hashes hashes) {
+        return concurrent.add(null, hashes.next());
+    }
+
+    /**
+     * Query the index while other threads add items.
+     * @param hashes
+     * @return the candidates
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public int[] mixedQuery(final Hashes hashes) {
+        return concurrent.query(hashes.next());
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh.benchmarks;
+
+import info.debatty.java.lsh.LSHMinHash;
+import info.debatty.java.lsh.LSHSuperBit;
+import info.debatty.java.lsh.MinHash;
+import info.debatty.java.lsh.SuperBit;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of LSH.hashSignature for the different signature types, and of
+ * the complete LSHMinHash and LSHSuperBit hash pipelines.
+ *
+ * @author Thibault Debatty
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LSHBenchmark {
+
+    private static final int DICT_SIZE = 10000;
+    private static final int DIMENSION = 256;
+
+    @Param({"4", "16"})
+    private int stages;
+
+    @Param({"100", "10000"})
+    private int buckets;
+
+    @Param({"0.99"})
+    private double sparsity;
+
+    private LSHMinHash lsh_minhash;
+    private LSHSuperBit lsh_superbit;
+    private boolean[] set;
+    private double[] vector;
+    private int[] minhash_sig;
+    private boolean[] superbit_sig;
+    private long[] packed_sig;
+    private int[] hash;
+
+    /**
+     * Generate the LSH objects, a random set and a random vector.
+     */
+    @Setup
+    public void setup() {
+        Random rand = new Random(123456);
+        lsh_minhash = new LSHMinHash(stages, buckets, DICT_SIZE, 123456);
+        lsh_superbit = new LSHSuperBit(stages, buckets, DIMENSION, 123456);
+
+        set = new boolean[DICT_SIZE];
+        for (int i = 0; i < DICT_SIZE; i++) {
+            set[i] = rand.nextDouble() > sparsity;
+        }
+
+        vector = new double[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = rand.nextGaussian();
+        }
+
+        MinHash mh = new MinHash(16 * stages, DICT_SIZE, 123456);
+        minhash_sig = mh.signature(set);
+
+        SuperBit sb = new SuperBit(DIMENSION, 64, stages, 123456);
+        superbit_sig = sb.signature(vector);
+        packed_sig = sb.packedSignature(vector);
+        hash = new int[stages];
+    }
+
+    /**
+     * Hash an int[] (MinHash) signature.
+     * @return the buckets
+     */
+    @Benchmark
+    public int[] hashIntSignature() {
+        return lsh_minhash.hashSignature(minhash_sig, hash);
+    }
+
+    /**
+     * Hash a boolean[] (SuperBit) signature.
+     * @return the buckets
+     */
+    @Benchmark
+    public int[] hashBooleanSignature() {
+        return lsh_superbit.hashSignature(superbit_sig, hash);
+    }
+
+    /**
+     * Hash a packed (SuperBit) signature.
+     * @return the buckets
+     */
+    @Benchmark
+    public int[] hashPackedSignature() {
+        return lsh_superbit.hashSignature(
+                packed_sig, superbit_sig.length, hash);
+    }
+
+    /**
+     * Complete LSHMinHash pipeline, without allocation.
+     * @return the buckets
+     */
+    @Benchmark
+    public int[] lshMinHash() {
+        return lsh_minhash.hash(set, hash);
+    }
+
+    /**
+     * Complete LSHSuperBit pipeline, without allocation.
+     * @return the buckets
+     */
+    @Benchmark
+    public int[] lshSuperBit() {
+        return lsh_superbit.hash(vector, hash);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh.benchmarks;
+
+import info.debatty.java.lsh.MinHash;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of MinHash signatures and of the exact Jaccard index, by
+ * dictionary size, sparsity (proportion of 0's in the vectors) and
+ * signature size.
+ *
+ * @author Thibault Debatty
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MinHashBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int dict_size;
+
+    @Param({"0.99", "0.999"})
+    private double sparsity;
+
+    @Param({"64", "128", "512"})
+    private int signature_size;
+
+    private MinHash minhash;
+    private boolean[] vector1;
+    private boolean[] vector2;
+    private int[] set;
+    private int[] sig;
+
+    /**
+     * Generate the hash functions and two random sets.
+     */
+    @Setup
+    public void setup() {
+        Random rand = new Random(123456);
+        minhash = new MinHash(signature_size, dict_size, rand.nextLong());
+        vector1 = randomVector(rand);
+        vector2 = randomVector(rand);
+        set = toSet(vector1);
+        sig = new int[signature_size];
+    }
+
+    /**
+     * Signature of a set given as boolean[].
+     * @return the signature
+     */
+    @Benchmark
+    public int[] signatureBooleanArray() {
+        return minhash.signature(vector1);
+    }
+
+    /**
+     * Signature of a set given as int[] of element ids.
+     * @return the signature
+     */
+    @Benchmark
+    public int[] signatureIntArray() {
+        return minhash.signature(set);
+    }
+
+    /**
+     * Signature of a set given as int[], written in a reused array.
+     * @return the signature
+     */
+    @Benchmark
+    public int[] signatureIntArrayNoAllocation() {
+        return minhash.signature(set, sig);
+    }
+
+    /**
+     * Exact Jaccard index between two sets given as boolean[].
+     * @return the Jaccard index
+     */
+    @Benchmark
+    public double jaccardIndex() {
+        return MinHash.jaccardIndex(vector1, vector2);
+    }
+
+    private boolean[] randomVector(final Random rand) {
+        boolean[] vector = new boolean[dict_size];
+        for (int i = 0; i < dict_size; i++) {
+            vector[i] = rand.nextDouble() > sparsity;
+        }
+        return vector;
+    }
+
+    private static int[] toSet(final boolean[] vector) {
+        int size = 0;
+        for (boolean b : vector) {
+            if (b) {
+                size++;
+            }
+        }
+
+        int[] ids = new int[size];
+        int position = 0;
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i]) {
+                ids[position] = i;
+                position++;
+            }
+        }
+        return ids;
+    }
+}
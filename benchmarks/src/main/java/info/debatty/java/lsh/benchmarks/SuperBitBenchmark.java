@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh.benchmarks;
+
+import info.debatty.java.lsh.SuperBit;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of SuperBit signatures, by dimension, code length and sparsity
+ * (proportion of 0's in the vectors).
+ *
+ * @author Thibault Debatty
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SuperBitBenchmark {
+
+    private static final int BATCH = 256;
+
+    @Param({"128", "1536"})
+    private int dimension;
+
+    @Param({"256", "1024"})
+    private int code_length;
+
+    @Param({"0.0", "0.9"})
+    private double sparsity;
+
+    private SuperBit superbit;
+    private double[] vector;
+    private double[][] vectors;
+    private boolean[] sig;
+    private long[] packed;
+
+    /**
+     * Generate the hyperplanes and random vectors.
+     */
+    @Setup
+    public void setup() {
+        Random rand = new Random(123456);
+        superbit = new SuperBit(
+                dimension,
+                Math.min(dimension, code_length),
+                code_length / Math.min(dimension, code_length),
+                rand.nextLong());
+
+        vector = randomVector(rand);
+        vectors = new double[BATCH][];
+        for (int i = 0; i < BATCH; i++) {
+            vectors[i] = randomVector(rand);
+        }
+        sig = new boolean[superbit.getCodeLength()];
+        packed = new long[superbit.packedSignature(vector).length];
+    }
+
+    /**
+     * Signature as boolean[].
+     * @return the signature
+     */
+    @Benchmark
+    public boolean[] signature() {
+        return superbit.signature(vector);
+    }
+
+    /**
+     * Signature as boolean[], written in a reused array.
+     * @return the signature
+     */
+    @Benchmark
+    public boolean[] signatureNoAllocation() {
+        return superbit.signature(vector, sig);
+    }
+
+    /**
+     * Packed signature, written in a reused array.
+     * @return the signature
+     */
+    @Benchmark
+    public long[] packedSignatureNoAllocation() {
+        return superbit.signature(vector, packed);
+    }
+
+    /**
+     * Packed signatures of a batch of vectors (divide the score by the
+     * batch size to get the throughput per vector).
+     * @return the signatures
+     */
+    @Benchmark
+    public long[][] batchSignatures() {
+        return superbit.signatures(vectors);
+    }
+
+    private double[] randomVector(final Random rand) {
+        double[] v = new double[dimension];
+        for (int i = 0; i < dimension; i++) {
+            if (rand.nextDouble() >= sparsity) {
+                v[i] = rand.nextGaussian();
+            }
+        }
+        return v;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementation of the kernels with the JDK incubator Vector API.
+ *
+ * This class is compiled only with Java 16+ (see the vector profile in
+ * pom.xml), and is loaded by Kernels only if the jdk.incubator.vector module
+ * is available at runtime.
+ *
+ * @author Thibault Debatty
+ */
+final class VectorKernels extends Kernels {
+
+    private static final VectorSpecies<Double> DOUBLES =
+            DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS =
+            LongVector.SPECIES_PREFERRED;
+
+    /**
+     * Int species with the same number of lanes as LONGS.
+     */
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(
+            int.class, VectorShape.forBitSize(LONGS.vectorBitSize() / 2));
+
+    private static final int MERSENNE_SHIFT = 31;
+
+    private final Kernels scalar = Kernels.scalar();
+
+    @Override
+    String name() {
+        return "vector " + DOUBLES.vectorBitSize() + " bits";
+    }
+
+    @Override
+    double dot(
+            final double[] a,
+            final int a_offset,
+            final double[] b,
+            final int b_offset,
+            final int length) {
+
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        int bound = DOUBLES.loopBound(length);
+        int j = 0;
+        for (; j < bound; j += DOUBLES.length()) {
+            acc = DoubleVector.fromArray(DOUBLES, a, a_offset + j).fma(
+                    DoubleVector.fromArray(DOUBLES, b, b_offset + j), acc);
+        }
+
+        double agg = sumLanes(acc);
+        for (; j < length; j++) {
+            agg += a[a_offset + j] * b[b_offset + j];
+        }
+        return agg;
+    }
+
+    @Override
+    void dot4(
+            final double[] h,
+            final int h_offset,
+            final double[] block,
+            final int offset,
+            final int length,
+            final double[] result) {
+
+        int offset0 = offset;
+        int offset1 = offset0 + length;
+        int offset2 = offset1 + length;
+        int offset3 = offset2 + length;
+
+        // Same operations as dot for each vector, hence identical results
+        DoubleVector acc0 = DoubleVector.zero(DOUBLES);
+        DoubleVector acc1 = acc0;
+        DoubleVector acc2 = acc0;
+        DoubleVector acc3 = acc0;
+        int bound = DOUBLES.loopBound(length);
+        int j = 0;
+        for (; j < bound; j += DOUBLES.length()) {
+            DoubleVector coef =
+                    DoubleVector.fromArray(DOUBLES, h, h_offset + j);
+            acc0 = coef.fma(
+                    DoubleVector.fromArray(DOUBLES, block, offset0 + j), acc0);
+            acc1 = coef.fma(
+                    DoubleVector.fromArray(DOUBLES, block, offset1 + j), acc1);
+            acc2 = coef.fma(
+                    DoubleVector.fromArray(DOUBLES, block, offset2 + j), acc2);
+            acc3 = coef.fma(
+                    DoubleVector.fromArray(DOUBLES, block, offset3 + j), acc3);
+        }
+
+        double agg0 = sumLanes(acc0);
+        double agg1 = sumLanes(acc1);
+        double agg2 = sumLanes(acc2);
+        double agg3 = sumLanes(acc3);
+        for (; j < length; j++) {
+            double coef = h[h_offset + j];
+            agg0 += coef * block[offset0 + j];
+            agg1 += coef * block[offset1 + j];
+            agg2 += coef * block[offset2 + j];
+            agg3 += coef * block[offset3 + j];
+        }
+
+        result[0] = agg0;
+        result[1] = agg1;
+        result[2] = agg2;
+        result[3] = agg3;
+    }
+
+    @Override
+    void minHash(final long[] a, final long[] b, final int x, final int[] sig) {
+        if (x < 0) {
+            // the modular reduction below is only valid for positive values
+            scalar.minHash(a, b, x, sig);
+            return;
+        }
+
+        int bound = LONGS.loopBound(sig.length);
+        int i = 0;
+        for (; i < bound; i += LONGS.length()) {
+            // t = a * x + b < 2^62
+            LongVector t = LongVector.fromArray(LONGS, a, i)
+                    .mul(x)
+                    .add(LongVector.fromArray(LONGS, b, i));
+
+            // t % (2^31 - 1), using 2^31 = 1 (mod 2^31 - 1)
+            LongVector r = t.and(MINHASH_PRIME)
+                    .add(t.lanewise(VectorOperators.LSHR, MERSENNE_SHIFT));
+            r = r.and(MINHASH_PRIME)
+                    .add(r.lanewise(VectorOperators.LSHR, MERSENNE_SHIFT));
+            r = r.sub(
+                    MINHASH_PRIME,
+                    r.compare(VectorOperators.GE, MINHASH_PRIME));
+
+            IntVector h = (IntVector) r.convertShape(
+                    VectorOperators.L2I, INTS, 0);
+            IntVector.fromArray(INTS, sig, i).min(h).intoArray(sig, i);
+        }
+
+        for (; i < sig.length; i++) {
+            int h = (int) ((a[i] * (long) x + b[i]) % MINHASH_PRIME);
+            sig[i] = Math.min(sig[i], h);
+        }
+    }
+
+    /**
+     * Sum the lanes in a fixed order (reduceLanes does not guarantee the
+     * order of floating point additions).
+     */
+    private static double sumLanes(final DoubleVector vector) {
+        double agg = 0;
+        for (int lane = 0; lane < DOUBLES.length(); lane++) {
+            agg += vector.lane(lane);
+        }
+        return agg;
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.io.Serializable;
+import java.util.Set;
+
+/**
+ * b-bit MinHash: MinHash signatures where only the lowest b bits (1, 2, 4 or
+ * 8) of each value are kept, packed in a long[].
+ *
+ * A signature of size n uses n * b / 64 longs, instead of n ints: with
+ * b = 1 signatures are 32 times smaller. As two different values may have
+ * the same lowest b bits, the fraction of equal values over-estimates the
+ * Jaccard index, and is corrected by the estimator of Li and König (2010),
+ * "b-Bit Minwise Hashing". For the same accuracy, b-bit signatures must be
+ * longer than full MinHash signatures (roughly 3 times longer for b = 1 and
+ * a Jaccard index of 0.5), but they still use much less memory.
+ *
+ * Once constructed, a BBitMinHash object is never modified: it can safely
+ * be used by multiple threads concurrently.
+ *
+ * @author Thibault Debatty
+ */
+public class BBitMinHash implements Serializable {
+
+    private static final int WORD_BITS = 64;
+    private static final int MAX_BITS = 8;
+
+    /**
+     * Size of the range of MinHash values (2^31 - 1).
+     */
+    private static final double HASH_RANGE = 2147483647.0;
+
+    private final MinHash mh;
+
+    /**
+     * Number of bits kept per value, values per long, and longs per
+     * signature.
+     */
+    private final int bits;
+    private final int values_per_word;
+    private final int words;
+
+    /**
+     * For each value packed in a long, the lowest bit is set.
+     */
+    private final long low_bits;
+
+    /**
+     * Initializes hash functions to compute b-bit signatures of size size,
+     * for sets built from a dictionary of dict_size elements.
+     *
+     * @param bits the number of bits kept per value (1, 2, 4 or 8)
+     * @param size the number of hash functions (and the number of values in
+     * resulting signatures)
+     * @param dict_size
+     */
+    public BBitMinHash(final int bits, final int size, final int dict_size) {
+        this(bits, new MinHash(size, dict_size));
+    }
+
+    /**
+     * Initializes hash functions to compute b-bit signatures of size size,
+     * for sets built from a dictionary of dict_size elements.
+     *
+     * @param bits the number of bits kept per value (1, 2, 4 or 8)
+     * @param size the number of hash functions (and the number of values in
+     * resulting signatures)
+     * @param dict_size
+     * @param seed random number generator seed. using the same value will
+     * guarantee identical hashes across object instantiations
+     */
+    public BBitMinHash(
+            final int bits,
+            final int size,
+            final int dict_size,
+            final long seed) {
+        this(bits, new MinHash(size, dict_size, seed));
+    }
+
+    /**
+     * Compress the signatures of an existing MinHash object.
+     *
+     * @param bits the number of bits kept per value (1, 2, 4 or 8)
+     * @param mh
+     */
+    public BBitMinHash(final int bits, final MinHash mh) {
+        if (bits <= 0 || bits > MAX_BITS || (bits & (bits - 1)) != 0) {
+            throw new IllegalArgumentException(
+                    "Number of bits should be 1, 2, 4 or 8");
+        }
+
+        this.mh = mh;
+        this.bits = bits;
+        this.values_per_word = WORD_BITS / bits;
+        this.words = (mh.getSignatureSize() + values_per_word - 1)
+                / values_per_word;
+
+        long mask = 0;
+        for (int i = 0; i < values_per_word; i++) {
+            mask |= 1L << (i * bits);
+        }
+        this.low_bits = mask;
+    }
+
+    /**
+     * Computes the b-bit signature of this set, represented as a vector of
+     * booleans.
+     *
+     * @param vector
+     * @return the signature
+     */
+    public final long[] signature(final boolean[] vector) {
+        return compress(mh.signature(vector));
+    }
+
+    /**
+     * Computes the b-bit signature of this set.
+     *
+     * @param set
+     * @return the signature
+     */
+    public final long[] signature(final Set<Integer> set) {
+        return compress(mh.signature(set));
+    }
+
+    /**
+     * Computes the b-bit signature of this set, given as an array of element
+     * ids.
+     *
+     * @param set
+     * @return the signature
+     */
+    public final long[] signature(final int[] set) {
+        return compress(mh.signature(set));
+    }
+
+    /**
+     * Compress a MinHash signature (computed by the MinHash object of this
+     * BBitMinHash).
+     *
+     * @param sig MinHash signature
+     * @return the b-bit signature
+     */
+    public final long[] compress(final int[] sig) {
+        return compress(sig, new long[words]);
+    }
+
+    /**
+     * Compress a MinHash signature, and write the b-bit signature in the
+     * provided array (which must have getWords() elements). This method does
+     * not allocate any object.
+     *
+     * @param sig MinHash signature
+     * @param packed array in which the b-bit signature is written
+     * @return packed
+     */
+    public final long[] compress(final int[] sig, final long[] packed) {
+        if (sig.length != mh.getSignatureSize()) {
+            throw new IllegalArgumentException(
+                    "Size of signature should be the signature size");
+        }
+
+        if (packed.length != words) {
+            throw new IllegalArgumentException(
+                    "Size of packed signature array should be "
+                    + "getWords()");
+        }
+
+        long value_mask = (1L << bits) - 1;
+        for (int w = 0; w < words; w++) {
+            packed[w] = 0;
+        }
+
+        for (int i = 0; i < sig.length; i++) {
+            packed[i / values_per_word] |=
+                    (sig[i] & value_mask) << ((i % values_per_word) * bits);
+        }
+
+        return packed;
+    }
+
+    /**
+     * Count the number of values that are equal in two b-bit signatures.
+     *
+     * @param sig1
+     * @param sig2
+     * @return the number of equal values
+     */
+    public final int matches(final long[] sig1, final long[] sig2) {
+        if (sig1.length != words || sig2.length != words) {
+            throw new IllegalArgumentException(
+                    "Size of signatures should be getWords()");
+        }
+
+        // The bits of the values that differ are or-ed in the lowest bit of
+        // each value. The unused values of the last long are 0 in both
+        // signatures, hence they are not counted as different.
+        int different = 0;
+        for (int w = 0; w < words; w++) {
+            long diff = sig1[w] ^ sig2[w];
+            for (int shift = 1; shift < bits; shift <<= 1) {
+                diff |= diff >>> shift;
+            }
+            different += Long.bitCount(diff & low_bits);
+        }
+
+        return mh.getSignatureSize() - different;
+    }
+
+    /**
+     * Estimates the Jaccard index of two sets, using their b-bit signatures.
+     *
+     * Uses the estimator of Li and König for sparse sets (sets that are much
+     * smaller than the range of the hash functions, which is always the case
+     * in practice): J = (E - 1 / 2^b) / (1 - 1 / 2^b), where E is the
+     * fraction of equal values.
+     *
+     * @param sig1
+     * @param sig2
+     * @return the estimated similarity
+     */
+    public final double similarity(final long[] sig1, final long[] sig2) {
+        double collision = 1.0 / (1L << bits);
+        return estimate(sig1, sig2, collision, collision);
+    }
+
+    /**
+     * Estimates the Jaccard index of two sets, using their b-bit signatures
+     * and the size of the two sets, with the complete estimator of Li and
+     * König.
+     *
+     * @param sig1
+     * @param size1 number of elements of set1
+     * @param sig2
+     * @param size2 number of elements of set2
+     * @return the estimated similarity
+     */
+    public final double similarity(
+            final long[] sig1,
+            final int size1,
+            final long[] sig2,
+            final int size2) {
+
+        if (size1 <= 0 || size2 <= 0) {
+            return similarity(sig1, sig2);
+        }
+
+        double r1 = size1 / HASH_RANGE;
+        double r2 = size2 / HASH_RANGE;
+        double a1 = coefficient(r1);
+        double a2 = coefficient(r2);
+
+        double c1 = (a1 * r2 + a2 * r1) / (r1 + r2);
+        double c2 = (a1 * r1 + a2 * r2) / (r1 + r2);
+        return estimate(sig1, sig2, c1, c2);
+    }
+
+    /**
+     * Get the number of bits kept per value.
+     *
+     * @return the number of bits
+     */
+    public final int getBits() {
+        return bits;
+    }
+
+    /**
+     * Get the number of values of the signatures.
+     *
+     * @return the signature size
+     */
+    public final int getSignatureSize() {
+        return mh.getSignatureSize();
+    }
+
+    /**
+     * Get the number of longs of the b-bit signatures.
+     *
+     * @return the number of longs
+     */
+    public final int getWords() {
+        return words;
+    }
+
+    /**
+     * Get the MinHash object used to compute the (full) signatures.
+     *
+     * @return the MinHash
+     */
+    public final MinHash getMinHash() {
+        return mh;
+    }
+
+    /**
+     * J = (E - C1) / (1 - C2), clamped to [0, 1].
+     */
+    private double estimate(
+            final long[] sig1,
+            final long[] sig2,
+            final double c1,
+            final double c2) {
+
+        double e = (double) matches(sig1, sig2) / mh.getSignatureSize();
+        double j = (e - c1) / (1 - c2);
+        return Math.max(0, Math.min(1, j));
+    }
+
+    /**
+     * A = r (1 - r)^(2^b - 1) / (1 - (1 - r)^(2^b)).
+     */
+    private double coefficient(final double r) {
+        double values = 1L << bits;
+        return r * Math.pow(1 - r, values - 1)
+                / (1 - Math.pow(1 - r, values));
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Versioned binary format used to save and load LSH models with
+ * DataOutput / DataInput, as an alternative to Java serialization.
+ *
+ * Each model starts with an 8 bytes header:
+ * - magic number (int)
+ * - format version (byte)
+ * - model type (byte)
+ * - mode (byte): FULL if all coefficients are stored, or SEED if only the
+ *   parameters and the seed are stored (the coefficients are then
+ *   regenerated when the model is loaded)
+ * - reserved (byte)
+ *
+ * All values are big-endian, as defined by DataOutput.
+ *
+ * @author Thibault Debatty
+ */
+final class BinaryFormat {
+
+    static final int MAGIC = 0x4C534846; // "LSHF"
+    static final byte VERSION = 1;
+
+    static final byte TYPE_MINHASH = 1;
+    static final byte TYPE_SUPERBIT = 2;
+    static final byte TYPE_LSH_MINHASH = 3;
+    static final byte TYPE_LSH_SUPERBIT = 4;
+    static final byte TYPE_FAST_SUPERBIT = 5;
+    static final byte TYPE_LSH_FAST_SUPERBIT = 6;
+    static final byte TYPE_SEGMENT = 7;
+    static final byte TYPE_MANIFEST = 8;
+
+    static final byte MODE_FULL = 0;
+    static final byte MODE_SEED = 1;
+
+    static final int HEADER_SIZE = 8;
+
+    /**
+     * Size of the buffer used to read and write arrays of doubles.
+     */
+    private static final int BUFFER_SIZE = 8192;
+    private static final int DOUBLE_SIZE = 8;
+    private static final int INT_SIZE = 4;
+
+    private BinaryFormat() {
+    }
+
+    static void writeHeader(
+            final DataOutput out, final byte type, final byte mode)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(type);
+        out.writeByte(mode);
+        out.writeByte(0);
+    }
+
+    /**
+     * Read and check the header.
+     *
+     * @return the mode (MODE_FULL or MODE_SEED)
+     */
+    static byte readHeader(final DataInput in, final byte type)
+            throws IOException {
+        return readHeader(in, type, type)[1];
+    }
+
+    /**
+     * Read and check the header of a model that can have one of two types.
+     *
+     * @return the type and the mode of the model
+     */
+    static byte[] readHeader(
+            final DataInput in, final byte type, final byte other_type)
+            throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a java-lsh binary model");
+        }
+
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException(
+                    "Unsupported binary model version: " + version);
+        }
+
+        byte actual_type = in.readByte();
+        if (actual_type != type && actual_type != other_type) {
+            throw new IOException(
+                    "Wrong model type: expected " + type
+                    + " but found " + actual_type);
+        }
+
+        byte mode = in.readByte();
+        if (mode != MODE_FULL && mode != MODE_SEED) {
+            throw new IOException("Unsupported mode: " + mode);
+        }
+
+        in.readByte();
+        return new byte[] {actual_type, mode};
+    }
+
+    /**
+     * Write the values of this array, through a byte buffer (much faster
+     * than calling writeDouble for each value).
+     */
+    static void writeDoubles(
+            final DataOutput out, final double[] values, final byte[] buffer)
+            throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer);
+        int position = 0;
+        while (position < values.length) {
+            int count = Math.min(
+                    buffer.length / DOUBLE_SIZE, values.length - position);
+            bytes.clear();
+            bytes.asDoubleBuffer().put(values, position, count);
+            out.write(buffer, 0, count * DOUBLE_SIZE);
+            position += count;
+        }
+    }
+
+    /**
+     * Read values.length doubles in this array, through a byte buffer.
+     */
+    static void readDoubles(
+            final DataInput in, final double[] values, final byte[] buffer)
+            throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer);
+        int position = 0;
+        while (position < values.length) {
+            int count = Math.min(
+                    buffer.length / DOUBLE_SIZE, values.length - position);
+            in.readFully(buffer, 0, count * DOUBLE_SIZE);
+            bytes.clear();
+            bytes.asDoubleBuffer().get(values, position, count);
+            position += count;
+        }
+    }
+
+    /**
+     * Write count values of this array, starting at from, through a byte
+     * buffer.
+     */
+    static void writeInts(
+            final DataOutput out, final int[] values, final int from,
+            final int count, final byte[] buffer)
+            throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer);
+        int position = from;
+        while (position < from + count) {
+            int n = Math.min(
+                    buffer.length / INT_SIZE, from + count - position);
+            bytes.clear();
+            bytes.asIntBuffer().put(values, position, n);
+            out.write(buffer, 0, n * INT_SIZE);
+            position += n;
+        }
+    }
+
+    static byte[] newBuffer() {
+        return new byte[BUFFER_SIZE];
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.io.Serializable;
+
+/**
+ * Storage of the posting lists of an LSHIndex: for each slot
+ * (stage * buckets + bucket), the ids of the items binned in this bucket,
+ * in the order they were appended.
+ *
+ * Implementations:
+ * - HeapBucketStore: one int[] per slot, on the Java heap;
+ * - OffHeapBucketStore: blocks of ids in direct ByteBuffers, outside of the
+ *   Java heap.
+ *
+ * Bucket stores are not thread-safe.
+ *
+ * @author Thibault Debatty
+ */
+public interface BucketStore extends Serializable {
+
+    /**
+     * Get the number of slots (stages * buckets).
+     *
+     * @return the number of slots
+     */
+    int getSlots();
+
+    /**
+     * Append an id to the posting list of this slot.
+     *
+     * @param slot
+     * @param id
+     */
+    void append(int slot, int id);
+
+    /**
+     * Get the number of ids in the posting list of this slot.
+     *
+     * @param slot
+     * @return the number of ids
+     */
+    int size(int slot);
+
+    /**
+     * Copy the posting list of this slot in the provided array (which must
+     * have at least size(slot) elements after offset).
+     *
+     * @param slot
+     * @param ids array in which the ids are copied
+     * @param offset position of the first id in ids
+     * @return the number of ids copied
+     */
+    int read(int slot, int[] ids, int offset);
+
+    /**
+     * Release the unused capacity of the posting lists, and store each
+     * posting list contiguously (when possible).
+     */
+    void compact();
+}
@@ -0,0 +1,172 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.util.Arrays;
+
+/**
+ * Reusable collector of the candidates of an LSHIndex query (see
+ * LSHIndex.query(int[], Candidates)), with the number of stages in which
+ * each candidate collides with the query.
+ *
+ * Candidates are deduplicated with an array of generation stamps indexed by
+ * item id: starting a new query only increments the generation, hence the
+ * arrays are allocated once (and grown with the index), and a query does not
+ * allocate any object in steady state. The candidates are listed in the
+ * order in which they are found (not sorted).
+ *
+ * A Candidates object is not thread-safe: use one per thread.
+ *
+ * @author Thibault Debatty
+ */
+public final class Candidates {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * For each item id, the generation of the last query that found it.
+     */
+    private int[] stamps = new int[INITIAL_CAPACITY];
+
+    /**
+     * For each item id, the number of collisions in the current query
+     * (valid only if the stamp is the current generation).
+     */
+    private int[] collisions = new int[INITIAL_CAPACITY];
+
+    private int generation;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Buffer used to read the posting lists.
+     */
+    private int[] buffer = new int[INITIAL_CAPACITY];
+
+    /**
+     * Get the number of candidates found by the last query.
+     *
+     * @return the number of candidates
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the id of the i-th candidate.
+     *
+     * @param i position of the candidate (0 .. size - 1)
+     * @return the id of the candidate
+     */
+    public int getId(final int i) {
+        checkPosition(i);
+        return ids[i];
+    }
+
+    /**
+     * Get the number of stages (or probed buckets) in which the i-th
+     * candidate collides with the query.
+     *
+     * @param i position of the candidate (0 .. size - 1)
+     * @return the number of collisions (>= 1)
+     */
+    public int getCollisions(final int i) {
+        checkPosition(i);
+        return collisions[ids[i]];
+    }
+
+    /**
+     * Get the ids of the candidates that collide with the query in at least
+     * this number of stages.
+     *
+     * @param min_collisions
+     * @return the ids, in the order in which they were found
+     */
+    public int[] getIds(final int min_collisions) {
+        int count = 0;
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (collisions[ids[i]] >= min_collisions) {
+                result[count] = ids[i];
+                count++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Start a new query, for an index of this number of items.
+     */
+    void clear(final int items) {
+        if (stamps.length < items) {
+            int capacity = Math.max(items, 2 * stamps.length);
+            stamps = Arrays.copyOf(stamps, capacity);
+            collisions = Arrays.copyOf(collisions, capacity);
+        }
+
+        generation++;
+        if (generation == 0) {
+            // the stamps wrapped around: reset them
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Get a buffer of at least this size, to read a posting list.
+     */
+    int[] buffer(final int length) {
+        if (buffer.length < length) {
+            buffer = new int[Math.max(length, 2 * buffer.length)];
+        }
+        return buffer;
+    }
+
+    /**
+     * Count a collision with this item.
+     */
+    void add(final int id) {
+        if (stamps[id] == generation) {
+            collisions[id]++;
+            return;
+        }
+
+        stamps[id] = generation;
+        collisions[id] = 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, 2 * ids.length);
+        }
+        ids[size] = id;
+        size++;
+    }
+
+    private void checkPosition(final int i) {
+        if (i < 0 || i >= size) {
+            throw new IllegalArgumentException(
+                    "Candidate should be in [0 .. size - 1]");
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Index of LSH hashes that supports concurrent add and query, without a
+ * global lock.
+ *
+ * Like LSHIndex, each item receives an int id when it is added, and the
+ * index keeps a posting list of ids for each stage and each bucket. Ids are
+ * allocated with an atomic counter, hence items added concurrently receive
+ * distinct ids, but not necessarily in the order of the calls to add. This
+ * counter is the only shared variable written by every add.
+ *
+ * Concurrent add and query are safe, but the speedup of add with the number
+ * of threads has not been measured: every add updates the shared id
+ * counter, and threads that add items to the same buckets wait for the
+ * same locks, hence the throughput of add may not increase with the number
+ * of threads.
+ *
+ * Appending to a posting list is protected by one of STRIPES locks
+ * (selected by the stage and bucket), such that threads that add items to
+ * different buckets do not wait for each other. Queries do not lock: the
+ * array of each posting list is published before its size, and a query
+ * reads the size before the array.
+ *
+ * An item becomes visible to queries only once it has been appended to the
+ * posting lists of all stages: a query that starts after add has returned
+ * finds the item, and a query never returns an item for some stages only.
+ *
+ * @author Thibault Debatty
+ * @param <K> type of the keys associated to the items
+ */
+public class ConcurrentLSHIndex<K> {
+
+    /**
+     * Number of locks protecting the posting lists.
+     */
+    public static final int STRIPES = 1024;
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_CHUNKS =
+            (Integer.MAX_VALUE >>> CHUNK_SHIFT) + 1;
+
+    private final int stages;
+    private final int buckets;
+
+    /**
+     * Posting lists, indexed by stage * buckets + bucket.
+     */
+    private final AtomicReferenceArray<int[]> postings;
+    private final AtomicIntegerArray lengths;
+    private final Object[] locks;
+
+    /**
+     * Keys and hashes of the items, by chunks of CHUNK_SIZE items.
+     */
+    private final AtomicReferenceArray<Chunk> chunks;
+    private final AtomicInteger next_id = new AtomicInteger();
+
+    /**
+     * Create an empty index for hashes produced by this LSH object.
+     *
+     * @param lsh
+     */
+    public ConcurrentLSHIndex(final LSH lsh) {
+        this(lsh.getStages(), lsh.getBuckets());
+    }
+
+    /**
+     * Create an empty index for hashes of s stages and b buckets (per stage).
+     *
+     * @param stages stages
+     * @param buckets buckets (per stage)
+     */
+    public ConcurrentLSHIndex(final int stages, final int buckets) {
+        int slots = LSHIndex.slots(stages, buckets);
+        this.stages = stages;
+        this.buckets = buckets;
+        this.postings = new AtomicReferenceArray<int[]>(slots);
+        this.lengths = new AtomicIntegerArray(slots);
+        this.locks = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.chunks = new AtomicReferenceArray<Chunk>(MAX_CHUNKS);
+    }
+
+    /**
+     * Add an item to the index. Can be called concurrently by multiple
+     * threads.
+     *
+     * @param key key associated to this item
+     * @param hash LSH hash of the item (one bucket per stage)
+     * @return the id of this item
+     * @throws IllegalStateException if the index already contains 2^31 - 1
+     * items
+     */
+    public final int add(final K key, final int[] hash) {
+        checkHash(hash);
+        int id = allocateId();
+
+        Chunk chunk = chunk(id >>> CHUNK_SHIFT);
+        int position = id & CHUNK_MASK;
+        System.arraycopy(hash, 0, chunk.hashes, position * stages, stages);
+        chunk.keys[position] = key;
+
+        for (int stage = 0; stage < stages; stage++) {
+            append(stage * buckets + hash[stage], id);
+        }
+
+        // publish the item (and its key and hash)
+        chunk.added.set(position, 1);
+        return id;
+    }
+
+    /**
+     * Allocate the next id. The counter is never incremented past
+     * Integer.MAX_VALUE, hence it does not wrap around when the index is
+     * full.
+     */
+    private int allocateId() {
+        while (true) {
+            int id = next_id.get();
+            if (id == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Index is full");
+            }
+            if (next_id.compareAndSet(id, id + 1)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Get the ids of all items that fall in the same bucket as this hash, for
+     * at least one stage. Each id appears only once in the result. Can be
+     * called concurrently with add.
+     *
+     * @param hash LSH hash of the query (one bucket per stage)
+     * @return sorted array of item ids
+     */
+    public final int[] query(final int[] hash) {
+        checkHash(hash);
+
+        // the size must be read before the array
+        int[] sizes = new int[stages];
+        int[][] arrays = new int[stages][];
+        int total = 0;
+        for (int stage = 0; stage < stages; stage++) {
+            int slot = stage * buckets + hash[stage];
+            sizes[stage] = lengths.get(slot);
+            arrays[stage] = postings.get(slot);
+            total += sizes[stage];
+        }
+
+        int[] candidates = new int[total];
+        int position = 0;
+        for (int stage = 0; stage < stages; stage++) {
+            for (int i = 0; i < sizes[stage]; i++) {
+                int id = arrays[stage][i];
+                if (isAdded(id)) {
+                    candidates[position] = id;
+                    position++;
+                }
+            }
+        }
+
+        int[] result = new int[position];
+        System.arraycopy(candidates, 0, result, 0, position);
+        return LSHIndex.unique(result);
+    }
+
+    /**
+     * Get the key associated to this item.
+     *
+     * @param id id of the item (as returned by add or query)
+     * @return the key
+     */
+    public final K getKey(final int id) {
+        if (!isAdded(id)) {
+            throw new IllegalArgumentException("No item with id " + id);
+        }
+
+        @SuppressWarnings("unchecked")
+        K key = (K) chunks.get(id >>> CHUNK_SHIFT).keys[id & CHUNK_MASK];
+        return key;
+    }
+
+    /**
+     * Get the hash of this item.
+     *
+     * @param id id of the item (as returned by add or query)
+     * @return a copy of the hash
+     */
+    public final int[] getHash(final int id) {
+        if (!isAdded(id)) {
+            throw new IllegalArgumentException("No item with id " + id);
+        }
+
+        int[] hash = new int[stages];
+        System.arraycopy(
+                chunks.get(id >>> CHUNK_SHIFT).hashes,
+                (id & CHUNK_MASK) * stages, hash, 0, stages);
+        return hash;
+    }
+
+    /**
+     * Get the number of ids allocated by add: this includes the items whose
+     * add is still in progress (and which are not visible to queries yet).
+     *
+     * @return the number of items
+     */
+    public final int size() {
+        return next_id.get();
+    }
+
+    /**
+     * Get the number of stages of the hashes in this index.
+     *
+     * @return the number of stages
+     */
+    public final int getStages() {
+        return stages;
+    }
+
+    /**
+     * Get the number of buckets (per stage) of the hashes in this index.
+     *
+     * @return the number of buckets
+     */
+    public final int getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Append this id to a posting list, while holding the lock of the slot.
+     * The element and the (new) array are written before the size, which
+     * publishes them to queries.
+     */
+    private void append(final int slot, final int id) {
+        synchronized (locks[slot & (STRIPES - 1)]) {
+            int length = lengths.get(slot);
+            int[] posting = postings.get(slot);
+            if (posting == null) {
+                posting = new int[INITIAL_CAPACITY];
+
+            } else if (length == posting.length) {
+                int[] copy = new int[2 * length];
+                System.arraycopy(posting, 0, copy, 0, length);
+                posting = copy;
+            }
+
+            posting[length] = id;
+            postings.set(slot, posting);
+            lengths.set(slot, length + 1);
+        }
+    }
+
+    private boolean isAdded(final int id) {
+        if (id < 0) {
+            return false;
+        }
+
+        Chunk chunk = chunks.get(id >>> CHUNK_SHIFT);
+        return chunk != null && chunk.added.get(id & CHUNK_MASK) == 1;
+    }
+
+    /**
+     * Get (or create) this chunk.
+     */
+    private Chunk chunk(final int index) {
+        Chunk chunk = chunks.get(index);
+        if (chunk == null) {
+            chunks.compareAndSet(index, null, new Chunk(stages));
+            chunk = chunks.get(index);
+        }
+        return chunk;
+    }
+
+    private void checkHash(final int[] hash) {
+        if (hash.length != stages) {
+            throw new IllegalArgumentException(
+                    "Hash should contain one bucket per stage");
+        }
+
+        for (int bucket : hash) {
+            if (bucket < 0 || bucket >= buckets) {
+                throw new IllegalArgumentException(
+                        "Bucket should be in [0 .. buckets - 1]");
+            }
+        }
+    }
+
+    /**
+     * Keys and hashes of CHUNK_SIZE items. An item is visible once its added
+     * flag is set.
+     */
+    private static final class Chunk {
+
+        private final int[] hashes;
+        private final Object[] keys;
+        private final AtomicIntegerArray added;
+
+        Chunk(final int stages) {
+            this.hashes = new int[CHUNK_SIZE * stages];
+            this.keys = new Object[CHUNK_SIZE];
+            this.added = new AtomicIntegerArray(CHUNK_SIZE);
+        }
+    }
+}
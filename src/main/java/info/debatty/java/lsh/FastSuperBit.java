@@ -0,0 +1,455 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * Sign random projections with structured orthogonal projections, as a fast
+ * alternative to SuperBit.
+ *
+ * Vectors are zero-padded to the next power of 2 (m), and projected with
+ * blocks of the form H D3 H D2 H D1, where H is the Walsh-Hadamard transform
+ * and Di are random diagonal matrices of signs. Each block is an
+ * orthogonal matrix (up to a scaling factor) that behaves like a random
+ * rotation, hence the m bits of a block are signs of projections on m
+ * orthogonal random directions, like the hyperplanes of a SuperBit batch.
+ * A code length K requires ceil(K / m) blocks.
+ *
+ * Compared to SuperBit, the model only stores 3 * m random signs per block
+ * (O(d) memory instead of K * d doubles), there is no Gram-Schmidt process,
+ * and a signature is computed in O(ceil(K / m) * d log d) instead of
+ * O(K * d). SuperBit remains faster if K is much smaller than log(d).
+ *
+ * FastSuperBit objects can safely be used by multiple threads concurrently.
+ *
+ * @author Thibault Debatty
+ */
+public class FastSuperBit implements Serializable {
+
+    private static final int WORD_BITS = 64;
+    private static final int WORD_SHIFT = 6;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Dimension, padded dimension (power of 2), code length and number of
+     * blocks.
+     */
+    private int d;
+    private int m;
+    private int k;
+    private int blocks;
+
+    /**
+     * Seed used to generate the signs (the model is saved as d, K and the
+     * seed).
+     */
+    private long seed;
+
+    /**
+     * Random signs of the diagonal matrices: bit (b * 3 + r) * m + j is set
+     * if coefficient j of matrix Dr of block b is -1.
+     */
+    private long[] signs;
+
+    /**
+     * Per-thread buffer: padded input vector, followed by the vector that is
+     * transformed.
+     */
+    private transient volatile ThreadLocal<double[]> buffers;
+
+    /**
+     * Initialize structured projections for vectors of dimension d, to
+     * produce signatures of k bits.
+     *
+     * @param d data space dimension
+     * @param k code length
+     */
+    public FastSuperBit(final int d, final int k) {
+        this(d, k, new Random().nextLong());
+    }
+
+    /**
+     * Initialize structured projections for vectors of dimension d, to
+     * produce signatures of k bits.
+     *
+     * @param d data space dimension
+     * @param k code length
+     * @param seed random number generator seed. using the same value will
+     * guarantee identical hashes across object instantiations
+     */
+    public FastSuperBit(final int d, final int k, final long seed) {
+        if (d < 1) {
+            throw new IllegalArgumentException("Dimension d must be >= 1");
+        }
+
+        if (k < 1) {
+            throw new IllegalArgumentException("Code length K must be >= 1");
+        }
+
+        this.d = d;
+        this.k = k;
+        this.seed = seed;
+
+        int padded = 1;
+        while (padded < d) {
+            padded <<= 1;
+        }
+        this.m = padded;
+        this.blocks = (k + m - 1) / m;
+
+        Random rand = new Random(seed);
+        long bits = (long) blocks * ROUNDS * m;
+        signs = new long[(int) ((bits + WORD_BITS - 1) / WORD_BITS)];
+        for (int w = 0; w < signs.length; w++) {
+            signs[w] = rand.nextLong();
+        }
+    }
+
+    /**
+     * Compute the signature of this vector.
+     *
+     * @param vector
+     * @return the signature
+     */
+    public final boolean[] signature(final double[] vector) {
+        long[] packed = packedSignature(vector);
+        boolean[] sig = new boolean[k];
+        for (int i = 0; i < k; i++) {
+            sig[i] = (packed[i >>> WORD_SHIFT] & (1L << i)) != 0;
+        }
+        return sig;
+    }
+
+    /**
+     * Compute the signature of this vector, packed in an array of longs
+     * (bit i of the signature is stored in bit (i % 64) of word (i / 64)).
+     *
+     * @param vector
+     * @return the packed signature
+     */
+    public final long[] packedSignature(final double[] vector) {
+        return signature(vector, new long[SuperBit.words(k)]);
+    }
+
+    /**
+     * Compute the packed signature of this vector, and write it in the
+     * provided array (which must contain (K + 63) / 64 longs). Apart from a
+     * per-thread buffer allocated at the first call, this method does not
+     * allocate any object.
+     *
+     * @param vector
+     * @param sig array in which the packed signature is written
+     * @return sig
+     */
+    public final long[] signature(final double[] vector, final long[] sig) {
+        checkDimension(vector.length);
+        double[] buffer = buffer();
+        for (int j = 0; j < d; j++) {
+            buffer[j] = vector[j];
+        }
+        return project(buffer, sig);
+    }
+
+    /**
+     * Compute the packed signature of this vector of integers.
+     *
+     * @see #signature(double[], long[])
+     * @param vector
+     * @param sig array in which the packed signature is written
+     * @return sig
+     */
+    public final long[] signature(final int[] vector, final long[] sig) {
+        checkDimension(vector.length);
+        double[] buffer = buffer();
+        for (int j = 0; j < d; j++) {
+            buffer[j] = vector[j];
+        }
+        return project(buffer, sig);
+    }
+
+    /**
+     * Compute the packed signature of this single precision vector.
+     *
+     * @see #signature(double[], long[])
+     * @param vector
+     * @param sig array in which the packed signature is written
+     * @return sig
+     */
+    public final long[] signature(final float[] vector, final long[] sig) {
+        checkDimension(vector.length);
+        double[] buffer = buffer();
+        for (int j = 0; j < d; j++) {
+            buffer[j] = vector[j];
+        }
+        return project(buffer, sig);
+    }
+
+    /**
+     * Compute the packed signature of this int8 quantized vector (quantized
+     * symmetrically, see SuperBit.signature(byte[], long[])).
+     *
+     * @see #signature(double[], long[])
+     * @param vector
+     * @param sig array in which the packed signature is written
+     * @return sig
+     */
+    public final long[] signature(final byte[] vector, final long[] sig) {
+        checkDimension(vector.length);
+        double[] buffer = buffer();
+        for (int j = 0; j < d; j++) {
+            buffer[j] = vector[j];
+        }
+        return project(buffer, sig);
+    }
+
+    /**
+     * Compute the packed signature of this sparse vector.
+     *
+     * @see #signature(double[], long[])
+     * @param indices indices of the non-zero coordinates, in [0, d[
+     * @param values values of the non-zero coordinates
+     * @param sig array in which the packed signature is written
+     * @return sig
+     */
+    public final long[] signature(
+            final int[] indices, final double[] values, final long[] sig) {
+        if (indices.length != values.length) {
+            throw new IllegalArgumentException(
+                    "indices and values should have the same size");
+        }
+
+        double[] buffer = buffer();
+        for (int j = 0; j < d; j++) {
+            buffer[j] = 0;
+        }
+
+        for (int j = 0; j < indices.length; j++) {
+            if (indices[j] < 0 || indices[j] >= d) {
+                throw new IllegalArgumentException(
+                        "Indices should be in [0, d[");
+            }
+            buffer[indices[j]] += values[j];
+        }
+        return project(buffer, sig);
+    }
+
+    /**
+     * Compute the similarity between two packed signatures, which is also an
+     * estimation of the cosine similarity between the two vectors.
+     *
+     * @param sig1
+     * @param sig2
+     * @return estimated cosine similarity
+     */
+    public final double similarity(final long[] sig1, final long[] sig2) {
+        if (sig1.length != sig2.length) {
+            throw new IllegalArgumentException(
+                    "Size of signatures should be the same");
+        }
+
+        double agg = k - SuperBit.hammingDistance(sig1, sig2);
+        agg = agg / k;
+
+        return Math.cos((1 - agg) * Math.PI);
+    }
+
+    /**
+     * Get the code length (the size of the signatures).
+     *
+     * @return the code length
+     */
+    public final int getCodeLength() {
+        return k;
+    }
+
+    /**
+     * Get the dimension of the vectors.
+     *
+     * @return the dimension
+     */
+    public final int getDimension() {
+        return d;
+    }
+
+    /**
+     * Write this FastSuperBit in binary format. As the random signs are
+     * generated from the seed, only the dimension, the code length and the
+     * seed are written.
+     *
+     * @param out
+     * @throws IOException if an I/O error occurs
+     */
+    public final void write(final DataOutput out) throws IOException {
+        BinaryFormat.writeHeader(
+                out, BinaryFormat.TYPE_FAST_SUPERBIT, BinaryFormat.MODE_SEED);
+        out.writeInt(d);
+        out.writeInt(k);
+        out.writeLong(seed);
+    }
+
+    /**
+     * Read a FastSuperBit written by write(out).
+     *
+     * @param in
+     * @return the FastSuperBit
+     * @throws IOException if an I/O error occurs or the data is not a
+     * FastSuperBit binary model
+     */
+    public static FastSuperBit read(final DataInput in) throws IOException {
+        BinaryFormat.readHeader(in, BinaryFormat.TYPE_FAST_SUPERBIT);
+        int d = in.readInt();
+        int k = in.readInt();
+        if (d <= 0 || k <= 0) {
+            throw new IOException("Invalid FastSuperBit parameters");
+        }
+        return new FastSuperBit(d, k, in.readLong());
+    }
+
+    /**
+     * Compute the K projections of this vector (the signature is the sign
+     * of the projections). Used by multi-probe LSH.
+     *
+     * @param vector
+     * @param projections array in which the K projections are written
+     */
+    final void projections(
+            final double[] vector, final double[] projections) {
+        checkDimension(vector.length);
+        double[] buffer = buffer();
+        for (int j = 0; j < d; j++) {
+            buffer[j] = vector[j];
+        }
+        for (int j = d; j < m; j++) {
+            buffer[j] = 0;
+        }
+
+        for (int b = 0; b < blocks; b++) {
+            transform(buffer, b);
+            int first = b * m;
+            int count = Math.min(m, k - first);
+            System.arraycopy(buffer, m, projections, first, count);
+        }
+    }
+
+    /**
+     * Project the padded vector (in buffer[0 .. m - 1]) with each block, and
+     * write the signs in sig.
+     */
+    private long[] project(final double[] buffer, final long[] sig) {
+        if (sig.length != SuperBit.words(k)) {
+            throw new IllegalArgumentException(
+                    "Size of signature array should be (K + 63) / 64");
+        }
+
+        for (int w = 0; w < sig.length; w++) {
+            sig[w] = 0;
+        }
+
+        for (int j = d; j < m; j++) {
+            buffer[j] = 0;
+        }
+
+        for (int b = 0; b < blocks; b++) {
+            transform(buffer, b);
+            int first = b * m;
+            int count = Math.min(m, k - first);
+            for (int j = 0; j < count; j++) {
+                if (buffer[m + j] >= 0) {
+                    int i = first + j;
+                    sig[i >>> WORD_SHIFT] |= 1L << i;
+                }
+            }
+        }
+        return sig;
+    }
+
+    /**
+     * Copy the padded vector to buffer[m .. 2m - 1], and apply block b:
+     * H D3 H D2 H D1.
+     */
+    private void transform(final double[] buffer, final int b) {
+        System.arraycopy(buffer, 0, buffer, m, m);
+        for (int r = 0; r < ROUNDS; r++) {
+            flipSigns(buffer, (b * ROUNDS + r) * m);
+            hadamard(buffer);
+        }
+    }
+
+    /**
+     * Multiply buffer[m .. 2m - 1] by a diagonal matrix of signs, starting
+     * at this bit of signs.
+     */
+    private void flipSigns(final double[] buffer, final int first_bit) {
+        for (int j = 0; j < m; j++) {
+            int bit = first_bit + j;
+            if ((signs[bit >>> WORD_SHIFT] & (1L << bit)) != 0) {
+                buffer[m + j] = -buffer[m + j];
+            }
+        }
+    }
+
+    /**
+     * In-place (unnormalized) fast Walsh-Hadamard transform of
+     * buffer[m .. 2m - 1].
+     */
+    private void hadamard(final double[] buffer) {
+        for (int h = 1; h < m; h <<= 1) {
+            for (int i = 0; i < m; i += h << 1) {
+                for (int j = m + i; j < m + i + h; j++) {
+                    double x = buffer[j];
+                    double y = buffer[j + h];
+                    buffer[j] = x + y;
+                    buffer[j + h] = x - y;
+                }
+            }
+        }
+    }
+
+    private void checkDimension(final int length) {
+        if (length != d) {
+            throw new IllegalArgumentException(
+                    "Size of vector should be the dimension d");
+        }
+    }
+
+    private double[] buffer() {
+        ThreadLocal<double[]> local = buffers;
+        if (local == null) {
+            local = new ThreadLocal<double[]>() {
+                @Override
+                protected double[] initialValue() {
+                    return new double[2 * m];
+                }
+            };
+            buffers = local;
+        }
+        return local.get();
+    }
+}
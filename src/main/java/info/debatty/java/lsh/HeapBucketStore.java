@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+/**
+ * Bucket store that keeps each posting list in a primitive int[] on the Java
+ * heap. The arrays grow by doubling.
+ *
+ * @author Thibault Debatty
+ */
+public class HeapBucketStore implements BucketStore {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final int[][] postings;
+    private final int[] lengths;
+
+    /**
+     * Create an empty store with this number of slots (stages * buckets).
+     *
+     * @param slots
+     */
+    public HeapBucketStore(final int slots) {
+        this.postings = new int[slots][];
+        this.lengths = new int[slots];
+    }
+
+    @Override
+    public final int getSlots() {
+        return lengths.length;
+    }
+
+    @Override
+    public final void append(final int slot, final int id) {
+        int[] posting = postings[slot];
+        if (posting == null) {
+            posting = new int[INITIAL_CAPACITY];
+            postings[slot] = posting;
+
+        } else if (lengths[slot] == posting.length) {
+            posting = resize(posting, 2 * posting.length);
+            postings[slot] = posting;
+        }
+
+        posting[lengths[slot]] = id;
+        lengths[slot]++;
+    }
+
+    @Override
+    public final int size(final int slot) {
+        return lengths[slot];
+    }
+
+    @Override
+    public final int read(final int slot, final int[] ids, final int offset) {
+        int length = lengths[slot];
+        if (length > 0) {
+            System.arraycopy(postings[slot], 0, ids, offset, length);
+        }
+        return length;
+    }
+
+    @Override
+    public final void compact() {
+        for (int slot = 0; slot < postings.length; slot++) {
+            if (postings[slot] != null
+                    && postings[slot].length != lengths[slot]) {
+                postings[slot] = resize(postings[slot], lengths[slot]);
+            }
+        }
+    }
+
+    private static int[] resize(final int[] array, final int size) {
+        int[] copy = new int[size];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, size));
+        return copy;
+    }
+}
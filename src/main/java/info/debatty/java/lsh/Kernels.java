@@ -0,0 +1,208 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+/**
+ * Inner loops of MinHash and SuperBit signatures.
+ *
+ * The default implementation is plain scalar Java. If the JDK incubator
+ * Vector API is available (Java 16+, started with
+ * --add-modules jdk.incubator.vector), an implementation using SIMD
+ * instructions (AVX2, AVX-512...) is loaded instead. The SIMD
+ * implementation can be disabled with the system property
+ * info.debatty.java.lsh.vector=false.
+ *
+ * MinHash signatures are identical with both implementations. SuperBit dot
+ * products are summed in a different order by the SIMD implementation,
+ * hence a bit of a SuperBit signature may differ between the two
+ * implementations if the corresponding dot product is (nearly) 0.
+ *
+ * @author Thibault Debatty
+ */
+abstract class Kernels {
+
+    /**
+     * Modulus of the MinHash hash functions (2^31 - 1).
+     */
+    static final long MINHASH_PRIME = 2147483647L;
+
+    static final String PROPERTY = "info.debatty.java.lsh.vector";
+    private static final String VECTOR_KERNELS =
+            "info.debatty.java.lsh.VectorKernels";
+
+    private static final Kernels INSTANCE = load();
+
+    /**
+     * Get the best available implementation.
+     *
+     * @return the kernels
+     */
+    static Kernels get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the scalar implementation.
+     *
+     * @return the scalar kernels
+     */
+    static Kernels scalar() {
+        return new Scalar();
+    }
+
+    private static Kernels load() {
+        if ("false".equals(System.getProperty(PROPERTY))) {
+            return new Scalar();
+        }
+
+        try {
+            return (Kernels) Class.forName(VECTOR_KERNELS).newInstance();
+        } catch (Throwable ex) {
+            // Vector API not available (Java < 16, or module not added):
+            // fallback to scalar implementation
+            return new Scalar();
+        }
+    }
+
+    /**
+     * Name of the implementation.
+     *
+     * @return the name
+     */
+    abstract String name();
+
+    /**
+     * Dot product between a[a_offset .. a_offset + length - 1] and
+     * b[b_offset .. b_offset + length - 1].
+     */
+    abstract double dot(
+            double[] a, int a_offset, double[] b, int b_offset, int length);
+
+    /**
+     * Dot products between h[h_offset .. h_offset + length - 1] and 4
+     * consecutive vectors of size length in block, starting at offset. The
+     * results are written in result[0 .. 3], and are identical to 4 calls to
+     * dot.
+     */
+    abstract void dot4(
+            double[] h,
+            int h_offset,
+            double[] block,
+            int offset,
+            int length,
+            double[] result);
+
+    /**
+     * For each hash function i, sig[i] = min(sig[i], (a[i] * x + b[i]) % P).
+     */
+    abstract void minHash(long[] a, long[] b, int x, int[] sig);
+
+    /**
+     * Plain scalar implementation.
+     */
+    static final class Scalar extends Kernels {
+
+        @Override
+        String name() {
+            return "scalar";
+        }
+
+        @Override
+        double dot(
+                final double[] a,
+                final int a_offset,
+                final double[] b,
+                final int b_offset,
+                final int length) {
+
+            double agg = 0;
+            for (int j = 0; j < length; j++) {
+                agg += a[a_offset + j] * b[b_offset + j];
+            }
+            return agg;
+        }
+
+        @Override
+        void dot4(
+                final double[] h,
+                final int h_offset,
+                final double[] block,
+                final int offset,
+                final int length,
+                final double[] result) {
+
+            int offset0 = offset;
+            int offset1 = offset0 + length;
+            int offset2 = offset1 + length;
+            int offset3 = offset2 + length;
+
+            // Each accumulator sums the products in the same order as dot,
+            // hence the results are identical
+            double agg0 = 0;
+            double agg1 = 0;
+            double agg2 = 0;
+            double agg3 = 0;
+            for (int j = 0; j < length; j++) {
+                double coef = h[h_offset + j];
+                agg0 += coef * block[offset0 + j];
+                agg1 += coef * block[offset1 + j];
+                agg2 += coef * block[offset2 + j];
+                agg3 += coef * block[offset3 + j];
+            }
+
+            result[0] = agg0;
+            result[1] = agg1;
+            result[2] = agg2;
+            result[3] = agg3;
+        }
+
+        @Override
+        void minHash(
+                final long[] a, final long[] b, final int x, final int[] sig) {
+            if (x < 0) {
+                // Keep the sign semantics of %
+                for (int i = 0; i < sig.length; i++) {
+                    int h = (int) ((a[i] * x + b[i]) % MINHASH_PRIME);
+                    sig[i] = Math.min(sig[i], h);
+                }
+                return;
+            }
+
+            // a * x + b < 2^62 is reduced modulo the Mersenne prime 2^31 - 1
+            // without division, as 2^31 = 1 (mod 2^31 - 1): two folds bring
+            // it in [0, 2^31], and the final subtraction is branchless.
+            // The loop has no branch and a single index, so the JIT can
+            // vectorize it.
+            for (int i = 0; i < sig.length; i++) {
+                long v = a[i] * x + b[i];
+                v = (v & MINHASH_PRIME) + (v >>> 31);
+                v = (v & MINHASH_PRIME) + (v >>> 31);
+                v -= MINHASH_PRIME;
+                v += (v >> 63) & MINHASH_PRIME;
+                sig[i] = Math.min(sig[i], (int) v);
+            }
+        }
+    }
+}
@@ -14,6 +14,7 @@ public abstract class LSH implements Serializable {
     protected static final long LARGE_PRIME =  433494437;
     private static final int DEFAULT_STAGES = 3;
     private static final int DEFAULT_BUCKETS = 10;
+    private static final int WORD_SHIFT = 6;
 
     private int stages = DEFAULT_STAGES;
     private int buckets = DEFAULT_BUCKETS;
@@ -37,6 +38,22 @@ public abstract class LSH implements Serializable {
 
     }
 
+    /**
+     * Get the number of stages (or bands).
+     * @return the number of stages
+     */
+    public final int getStages() {
+        return stages;
+    }
+
+    /**
+     * Get the number of buckets per stage.
+     * @return the number of buckets
+     */
+    public final int getBuckets() {
+        return buckets;
+    }
+
     /**
      * Hash a signature.
      * The signature is divided in s stages (or bands). Each stage is hashed to
@@ -45,9 +62,25 @@ public abstract class LSH implements Serializable {
      * @return An vector of s integers (between 0 and b-1)
      */
     public final int[] hashSignature(final int[] signature) {
+        return hashSignature(signature, new int[stages]);
+    }
 
-        // Create an accumulator for each stage
-        int[] hash = new int[stages];
+    /**
+     * Hash a signature, and write the result in the provided array (which
+     * must have one element per stage). This method does not allocate any
+     * object.
+     *
+     * @param signature
+     * @param hash array in which the s buckets are written
+     * @return hash
+     */
+    public final int[] hashSignature(final int[] signature, final int[] hash) {
+        checkHashArray(hash);
+
+        // Reset the accumulator of each stage
+        for (int i = 0; i < stages; i++) {
+            hash[i] = 0;
+        }
 
         // Number of rows per stage
         int rows = signature.length / stages;
@@ -71,11 +104,26 @@ public abstract class LSH implements Serializable {
      * @return An vector of s integers (between 0 and b-1)
      */
     public final int[] hashSignature(final boolean[] signature) {
+        return hashSignature(signature, new int[stages]);
+    }
 
-        // Create an accumulator for each stage
-        long[] acc = new long[stages];
+    /**
+     * Hash a signature, and write the result in the provided array (which
+     * must have one element per stage). This method does not allocate any
+     * object.
+     *
+     * @param signature
+     * @param hash array in which the s buckets are written
+     * @return hash
+     */
+    public final int[] hashSignature(
+            final boolean[] signature, final int[] hash) {
+        checkHashArray(hash);
+
+        // Use the result array as accumulator for each stage: the
+        // accumulators are always smaller than Integer.MAX_VALUE
         for (int i = 0; i < stages; i++) {
-            acc[i] = 0;
+            hash[i] = 0;
         }
 
         // Number of rows per stage
@@ -89,14 +137,170 @@ public abstract class LSH implements Serializable {
 
             // current stage
             int j = Math.min(i / rows, stages - 1);
-            acc[j] = (acc[j] + v) % Integer.MAX_VALUE;
+            hash[j] = (int) ((hash[j] + v) % Integer.MAX_VALUE);
+        }
+
+        for (int i = 0; i < stages; i++) {
+            hash[i] = hash[i] % buckets;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Hash a packed signature, in which bit i of the signature is stored in
+     * bit (i % 64) of word (i / 64), as produced by SuperBit.
+     * The hash is the same as the hash of the corresponding boolean[]
+     * signature.
+     *
+     * @param signature packed signature
+     * @param length number of bits in the signature
+     * @return An vector of s integers (between 0 and b-1)
+     */
+    public final int[] hashSignature(final long[] signature, final int length) {
+        return hashSignature(signature, length, new int[stages]);
+    }
+
+    /**
+     * Hash a packed signature, and write the result in the provided array
+     * (which must have one element per stage). This method does not allocate
+     * any object.
+     *
+     * @param signature packed signature
+     * @param length number of bits in the signature
+     * @param hash array in which the s buckets are written
+     * @return hash
+     */
+    public final int[] hashSignature(
+            final long[] signature, final int length, final int[] hash) {
+        checkHashArray(hash);
+
+        for (int i = 0; i < stages; i++) {
+            hash[i] = 0;
+        }
+
+        // Number of rows per stage
+        int rows = length / stages;
+
+        // Only the bits that are set contribute to the accumulators
+        for (int w = 0; w < signature.length; w++) {
+            long word = signature[w];
+            while (word != 0) {
+                int i = (w << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+
+                long v = (i + 1) * LARGE_PRIME;
+                int j = Math.min(i / rows, stages - 1);
+                hash[j] = (int) ((hash[j] + v) % Integer.MAX_VALUE);
+            }
         }
 
-        int[] r = new int[stages];
         for (int i = 0; i < stages; i++) {
-            r[i] = (int) (acc[i] % buckets);
+            hash[i] = hash[i] % buckets;
         }
 
-        return r;
+        return hash;
+    }
+
+    /**
+     * Multi-probe buckets of a binary signature (see MultiProbe): bit i of
+     * the signature is margins[i] &gt;= 0, and flipping bit i has a score of
+     * |margins[i]|. The buckets of the signature itself are the same as the
+     * buckets computed by hashSignature.
+     *
+     * @param margins
+     * @param probes maximum number of buckets per stage
+     * @return for each stage, the buckets ranked by increasing score
+     */
+    final int[][] probeBits(final double[] margins, final int probes) {
+        checkProbes(probes);
+        long modulus = Integer.MAX_VALUE;
+        long[] deltas = new long[margins.length];
+        double[] scores = new double[margins.length];
+        long[] home = new long[stages];
+        int rows = margins.length / stages;
+
+        for (int i = 0; i < margins.length; i++) {
+            long v = ((i + 1) * LARGE_PRIME) % modulus;
+            int stage = Math.min(i / rows, stages - 1);
+            if (margins[i] >= 0) {
+                home[stage] = (home[stage] + v) % modulus;
+                deltas[i] = -v;
+            } else {
+                deltas[i] = v;
+            }
+            scores[i] = Math.abs(margins[i]);
+        }
+
+        return probeStages(home, deltas, scores, rows, modulus, probes);
+    }
+
+    /**
+     * Multi-probe buckets of an int[] signature (see MultiProbe): row i of
+     * the signature can be replaced by alternatives[i], with this score.
+     * The buckets of the signature itself are the same as the buckets
+     * computed by hashSignature.
+     *
+     * @param signature
+     * @param alternatives
+     * @param scores
+     * @param probes maximum number of buckets per stage
+     * @return for each stage, the buckets ranked by increasing score
+     */
+    final int[][] probeRows(
+            final int[] signature,
+            final int[] alternatives,
+            final double[] scores,
+            final int probes) {
+        checkProbes(probes);
+        long modulus = buckets;
+        long[] deltas = new long[signature.length];
+        long[] home = new long[stages];
+        int rows = signature.length / stages;
+
+        for (int i = 0; i < signature.length; i++) {
+            long v = (signature[i] * LARGE_PRIME) % modulus;
+            int stage = Math.min(i / rows, stages - 1);
+            home[stage] = (home[stage] + v) % modulus;
+            deltas[i] = (alternatives[i] * LARGE_PRIME) % modulus - v;
+        }
+
+        return probeStages(home, deltas, scores, rows, modulus, probes);
+    }
+
+    private int[][] probeStages(
+            final long[] home,
+            final long[] deltas,
+            final double[] scores,
+            final int rows,
+            final long modulus,
+            final int probes) {
+
+        int[][] result = new int[stages][];
+        for (int stage = 0; stage < stages; stage++) {
+            int first = stage * rows;
+            int count = rows;
+            if (stage == stages - 1) {
+                count = deltas.length - first;
+            }
+
+            result[stage] = MultiProbe.probeStage(
+                    home[stage], deltas, scores, first, count, modulus,
+                    buckets, probes);
+        }
+        return result;
+    }
+
+    private void checkProbes(final int probes) {
+        if (probes < 1) {
+            throw new IllegalArgumentException("probes must be >= 1");
+        }
+    }
+
+    private void checkHashArray(final int[] hash) {
+        if (hash.length != stages) {
+            throw new IllegalArgumentException(
+                    "Size of hash array should be the number of stages");
+        }
     }
 }
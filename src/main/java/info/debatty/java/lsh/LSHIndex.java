@@ -0,0 +1,509 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In-memory index of LSH hashes (as produced by LSH.hashSignature, or by the
+ * hash methods of LSHMinHash and LSHSuperBit).
+ *
+ * Each item receives an internal int id (0, 1, 2, ...) when it is added. For
+ * each stage and each bucket, the index keeps the ids of the items binned in
+ * this bucket (posting list), such that candidates can be retrieved without
+ * comparing every pair of hashes. The posting lists are kept in a
+ * BucketStore: by default a HeapBucketStore, or an OffHeapBucketStore for
+ * indexes that do not fit in the Java heap.
+ *
+ * By default, the index also keeps the key and the hash of each item on the
+ * heap (the hashes are used by allCandidatePairs). For very large indexes,
+ * they can be dropped (keep_items = false): the heap usage then does not
+ * depend on the number of items, and the caller maps the ids to its own
+ * data. An index contains at most 2^31 - 1 items.
+ *
+ * This class is not thread-safe.
+ *
+ * @author Thibault Debatty
+ * @param <K> type of the keys associated to the items
+ */
+public class LSHIndex<K> implements Serializable {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * The hashes are stored by chunks of 2^CHUNK_SHIFT items, so growing the
+     * index never copies all hashes (only the first chunk grows).
+     */
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int stages;
+    private final int buckets;
+
+    /**
+     * Posting lists, indexed by stage * buckets + bucket.
+     */
+    private final BucketStore store;
+
+    private int count;
+
+    /**
+     * Keys and hashes of all items (null if the items are not kept). The
+     * hash of item id is at offset (id & CHUNK_MASK) * stages of chunk
+     * id >>> CHUNK_SHIFT.
+     */
+    private int[][] hashes;
+    private final List<K> keys;
+
+    /**
+     * Create an empty index for hashes produced by this LSH object.
+     *
+     * @param lsh
+     */
+    public LSHIndex(final LSH lsh) {
+        this(lsh.getStages(), lsh.getBuckets());
+    }
+
+    /**
+     * Create an empty index for hashes produced by this LSH object, that
+     * keeps the posting lists in this (empty) store.
+     *
+     * @param lsh
+     * @param store with lsh.getStages() * lsh.getBuckets() slots
+     */
+    public LSHIndex(final LSH lsh, final BucketStore store) {
+        this(lsh.getStages(), lsh.getBuckets(), store);
+    }
+
+    /**
+     * Create an empty index for hashes produced by this LSH object, that
+     * keeps the posting lists in this (empty) store.
+     *
+     * @param lsh
+     * @param store with lsh.getStages() * lsh.getBuckets() slots
+     * @param keep_items if false, the keys and hashes of the items are not
+     * kept (getKey and allCandidatePairs are then not supported)
+     */
+    public LSHIndex(
+            final LSH lsh, final BucketStore store, final boolean keep_items) {
+        this(lsh.getStages(), lsh.getBuckets(), store, keep_items);
+    }
+
+    /**
+     * Create an empty index for hashes of s stages and b buckets (per stage).
+     *
+     * @param stages stages
+     * @param buckets buckets (per stage)
+     */
+    public LSHIndex(final int stages, final int buckets) {
+        this(stages, buckets, new HeapBucketStore(slots(stages, buckets)));
+    }
+
+    /**
+     * Create an empty index for hashes of s stages and b buckets (per stage),
+     * that keeps the posting lists in this (empty) store.
+     *
+     * @param stages stages
+     * @param buckets buckets (per stage)
+     * @param store with stages * buckets slots
+     */
+    public LSHIndex(
+            final int stages, final int buckets, final BucketStore store) {
+        this(stages, buckets, store, true);
+    }
+
+    /**
+     * Create an empty index for hashes of s stages and b buckets (per stage),
+     * that keeps the posting lists in this (empty) store.
+     *
+     * @param stages stages
+     * @param buckets buckets (per stage)
+     * @param store with stages * buckets slots
+     * @param keep_items if false, the keys and hashes of the items are not
+     * kept (getKey and allCandidatePairs are then not supported)
+     */
+    public LSHIndex(
+            final int stages, final int buckets, final BucketStore store,
+            final boolean keep_items) {
+        if (store.getSlots() != slots(stages, buckets)) {
+            throw new IllegalArgumentException(
+                    "Store should contain stages * buckets slots");
+        }
+
+        this.stages = stages;
+        this.buckets = buckets;
+        this.store = store;
+        if (keep_items) {
+            this.hashes = new int[INITIAL_CAPACITY][];
+            this.keys = new ArrayList<K>();
+        } else {
+            this.hashes = null;
+            this.keys = null;
+        }
+    }
+
+    /**
+     * Check the number of stages and buckets, and compute the number of
+     * slots of the bucket store.
+     */
+    static int slots(final int stages, final int buckets) {
+        if (stages < 1) {
+            throw new IllegalArgumentException("stages must be >= 1");
+        }
+
+        if (buckets < 1) {
+            throw new IllegalArgumentException("buckets must be >= 1");
+        }
+
+        if ((long) stages * buckets > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "stages * buckets must be < 2^31");
+        }
+
+        return stages * buckets;
+    }
+
+    /**
+     * Add an item to the index.
+     *
+     * @param key key associated to this item
+     * @param hash LSH hash of the item (one bucket per stage)
+     * @return the internal id of this item
+     */
+    public final int add(final K key, final int[] hash) {
+        checkHash(hash);
+
+        if (count == Integer.MAX_VALUE) {
+            throw new IllegalStateException(
+                    "LSHIndex is full (2^31 - 1 items)");
+        }
+
+        int id = count;
+        if (hashes != null) {
+            int chunk = id >>> CHUNK_SHIFT;
+            if (chunk == hashes.length) {
+                int[][] copy = new int[2 * hashes.length][];
+                System.arraycopy(hashes, 0, copy, 0, hashes.length);
+                hashes = copy;
+            }
+            int offset = (id & CHUNK_MASK) * stages;
+            if (hashes[chunk] == null && chunk == 0) {
+                hashes[chunk] = new int[INITIAL_CAPACITY * stages];
+
+            } else if (hashes[chunk] == null) {
+                hashes[chunk] = new int[CHUNK_SIZE * stages];
+
+            } else if (offset == hashes[chunk].length) {
+                // only the first chunk grows, up to CHUNK_SIZE items
+                hashes[chunk] = resize(hashes[chunk], 2 * offset);
+            }
+
+            System.arraycopy(hash, 0, hashes[chunk], offset, stages);
+            keys.add(key);
+        }
+        count++;
+
+        for (int stage = 0; stage < stages; stage++) {
+            store.append(stage * buckets + hash[stage], id);
+        }
+
+        return id;
+    }
+
+    /**
+     * Get the ids of all items that fall in the same bucket as this hash, for
+     * at least one stage. Each id appears only once in the result.
+     *
+     * @param hash LSH hash of the query (one bucket per stage)
+     * @return sorted array of item ids
+     */
+    public final int[] query(final int[] hash) {
+        checkHash(hash);
+
+        int total = 0;
+        for (int stage = 0; stage < stages; stage++) {
+            total += store.size(stage * buckets + hash[stage]);
+        }
+
+        int[] candidates = new int[total];
+        int position = 0;
+        for (int stage = 0; stage < stages; stage++) {
+            position += store.read(
+                    stage * buckets + hash[stage], candidates, position);
+        }
+
+        if (stages == 1) {
+            // a single posting list is already sorted and has no duplicates
+            return candidates;
+        }
+
+        return unique(candidates);
+    }
+
+    /**
+     * Get the ids of all items that fall in one of these buckets, for at
+     * least one stage (multi-probe LSH, see LSHSuperBit.probe and
+     * LSHMinHash.probe). Each id appears only once in the result.
+     *
+     * @param probes for each stage, the buckets to probe
+     * @return sorted array of item ids
+     */
+    public final int[] query(final int[][] probes) {
+        if (probes.length != stages) {
+            throw new IllegalArgumentException(
+                    "Probes should contain buckets for each stage");
+        }
+
+        int total = 0;
+        for (int stage = 0; stage < stages; stage++) {
+            checkBuckets(probes[stage]);
+            for (int bucket : probes[stage]) {
+                total += store.size(stage * buckets + bucket);
+            }
+        }
+
+        int[] candidates = new int[total];
+        int position = 0;
+        for (int stage = 0; stage < stages; stage++) {
+            for (int bucket : probes[stage]) {
+                position += store.read(
+                        stage * buckets + bucket, candidates, position);
+            }
+        }
+
+        return unique(candidates);
+    }
+
+    /**
+     * Get the items that fall in the same bucket as this hash, for at least
+     * one stage, with the number of stages in which they collide with the
+     * hash. Unlike query(int[]), the candidates are deduplicated without
+     * sorting, in a collector that can be reused for each query (hence no
+     * object is allocated in steady state).
+     *
+     * @param hash LSH hash of the query (one bucket per stage)
+     * @param candidates collector in which the candidates are written
+     * @return candidates
+     */
+    public final Candidates query(
+            final int[] hash, final Candidates candidates) {
+        checkHash(hash);
+
+        candidates.clear(count);
+        for (int stage = 0; stage < stages; stage++) {
+            collect(stage * buckets + hash[stage], candidates);
+        }
+        return candidates;
+    }
+
+    /**
+     * Get the items that fall in one of these buckets, for at least one
+     * stage (see query(int[][])), with the number of probed buckets in which
+     * they were found, using a reusable collector.
+     *
+     * @param probes for each stage, the buckets to probe
+     * @param candidates collector in which the candidates are written
+     * @return candidates
+     */
+    public final Candidates query(
+            final int[][] probes, final Candidates candidates) {
+        if (probes.length != stages) {
+            throw new IllegalArgumentException(
+                    "Probes should contain buckets for each stage");
+        }
+
+        for (int stage = 0; stage < stages; stage++) {
+            checkBuckets(probes[stage]);
+        }
+
+        candidates.clear(count);
+        for (int stage = 0; stage < stages; stage++) {
+            for (int bucket : probes[stage]) {
+                collect(stage * buckets + bucket, candidates);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Stream all pairs of items that fall in the same bucket for at least one
+     * stage. Each pair is reported only once, for the first stage where the
+     * two items collide.
+     *
+     * The cost is proportional to the sum of the squared sizes of the
+     * buckets, instead of the squared number of items.
+     *
+     * @param listener
+     * @throws IllegalStateException if the items are not kept
+     */
+    public final void allCandidatePairs(final CandidatePairListener listener) {
+        checkItems();
+        int[] posting = new int[INITIAL_CAPACITY];
+        for (int stage = 0; stage < stages; stage++) {
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                int slot = stage * buckets + bucket;
+                if (store.size(slot) > posting.length) {
+                    posting = new int[store.size(slot)];
+                }
+                int length = store.read(slot, posting, 0);
+
+                for (int i = 0; i < length; i++) {
+                    for (int j = i + 1; j < length; j++) {
+                        if (!collideBefore(posting[i], posting[j], stage)) {
+                            listener.candidatePair(posting[i], posting[j]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Release the unused capacity of the posting lists (see
+     * BucketStore.compact). Useful once all items are added.
+     */
+    public final void compact() {
+        store.compact();
+    }
+
+    /**
+     * Get the key associated to this item.
+     *
+     * @param id internal id of the item
+     * @return the key
+     * @throws IllegalStateException if the items are not kept
+     */
+    public final K getKey(final int id) {
+        checkItems();
+        return keys.get(id);
+    }
+
+    /**
+     * Get the number of items in the index.
+     *
+     * @return the number of items
+     */
+    public final int size() {
+        return count;
+    }
+
+    /**
+     * Get the number of stages of the hashes in this index.
+     *
+     * @return the number of stages
+     */
+    public final int getStages() {
+        return stages;
+    }
+
+    /**
+     * Get the number of buckets (per stage) of the hashes in this index.
+     *
+     * @return the number of buckets
+     */
+    public final int getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Add the items of this posting list to the candidates.
+     */
+    private void collect(final int slot, final Candidates candidates) {
+        int[] buffer = candidates.buffer(store.size(slot));
+        int length = store.read(slot, buffer, 0);
+        for (int i = 0; i < length; i++) {
+            candidates.add(buffer[i]);
+        }
+    }
+
+    /**
+     * Check if the two items fall in the same bucket for one of the stages
+     * preceding this stage.
+     */
+    private boolean collideBefore(
+            final int id1, final int id2, final int stage) {
+        int[] chunk1 = hashes[id1 >>> CHUNK_SHIFT];
+        int[] chunk2 = hashes[id2 >>> CHUNK_SHIFT];
+        int offset1 = (id1 & CHUNK_MASK) * stages;
+        int offset2 = (id2 & CHUNK_MASK) * stages;
+        for (int s = 0; s < stage; s++) {
+            if (chunk1[offset1 + s] == chunk2[offset2 + s]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkItems() {
+        if (keys == null) {
+            throw new IllegalStateException(
+                    "This index does not keep the keys and hashes of items");
+        }
+    }
+
+    private static int[] resize(final int[] array, final int size) {
+        int[] copy = new int[size];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, size));
+        return copy;
+    }
+
+    /**
+     * Sort these ids, and remove duplicates.
+     */
+    static int[] unique(final int[] candidates) {
+        Arrays.sort(candidates);
+        int unique = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            if (unique == 0 || candidates[i] != candidates[unique - 1]) {
+                candidates[unique] = candidates[i];
+                unique++;
+            }
+        }
+
+        return resize(candidates, unique);
+    }
+
+    private void checkHash(final int[] hash) {
+        if (hash.length != stages) {
+            throw new IllegalArgumentException(
+                    "Hash should contain one bucket per stage");
+        }
+
+        checkBuckets(hash);
+    }
+
+    private void checkBuckets(final int[] values) {
+        for (int bucket : values) {
+            if (bucket < 0 || bucket >= buckets) {
+                throw new IllegalArgumentException(
+                        "Bucket should be in [0 .. buckets - 1]");
+            }
+        }
+    }
+}
@@ -24,7 +24,16 @@
 
 package info.debatty.java.lsh;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
+ * LSH implementation relying on MinHash.
+ *
+ * LSHMinHash objects can safely be used by multiple threads concurrently.
  *
  * @author Thibault Debatty
  */
@@ -32,6 +41,11 @@ public class LSHMinHash extends LSH {
     private final MinHash mh;
     private static final double THRESHOLD = 0.5;
 
+    /**
+     * Per-thread signature buffer, used by hash(vector, hash).
+     */
+    private transient volatile ThreadLocal<int[]> signatures;
+
     /**
      * Instantiates a LSH instance that internally uses MinHash,
      * with s stages (or bands) and b buckets (per stage), for sets out of a
@@ -70,6 +84,15 @@ public class LSHMinHash extends LSH {
         this.mh = new MinHash(signature_size, n, seed);
     }
 
+    /**
+     * Instantiates a LSH instance with an existing MinHash (used when reading
+     * a binary model).
+     */
+    private LSHMinHash(final int s, final int b, final MinHash mh) {
+        super(s, b);
+        this.mh = mh;
+    }
+
     /**
      * Compute the size of the signature according to "Mining of Massive
      * Datasets" p88.
@@ -104,6 +127,130 @@ public class LSHMinHash extends LSH {
         return hashSignature(this.mh.signature(vector));
     }
 
+    /**
+     * Bin this vector to corresponding buckets, and write the result in the
+     * provided array (which must have one element per stage).
+     *
+     * The intermediate signature is computed in a buffer that is reused by
+     * each thread, so this method does not allocate any object in steady
+     * state.
+     *
+     * @param vector
+     * @param hash array in which the s buckets are written
+     * @return hash
+     */
+    public final int[] hash(final boolean[] vector, final int[] hash) {
+        return hashSignature(mh.signature(vector, signatureBuffer()), hash);
+    }
+
+    /**
+     * Compute the MinHash signature of this vector (used by MinHashIndex).
+     */
+    final int[] signature(final boolean[] vector) {
+        return mh.signature(vector);
+    }
+
+    /**
+     * Get the size of the MinHash signatures.
+     */
+    final int getSignatureSize() {
+        return mh.getSignatureSize();
+    }
+
+    /**
+     * Multi-probe LSH: for each stage, compute the bucket of this vector
+     * followed by neighbouring buckets, ranked by decreasing probability of
+     * containing similar sets. Neighbouring buckets are obtained by
+     * replacing MinHash values of the stage by the second smallest hash
+     * value of the set, starting with the rows where the gap between the
+     * two smallest values is the smallest.
+     *
+     * Querying an LSHIndex with these buckets (see LSHIndex.query(int[][]))
+     * reaches the same recall with fewer stages.
+     *
+     * @param vector
+     * @param probes maximum number of buckets per stage
+     * @return for each stage, up to probes buckets (the first one is the
+     * bucket returned by hash(vector))
+     */
+    public final int[][] probe(final boolean[] vector, final int probes) {
+        int size = mh.getSignatureSize();
+        int[] sig = new int[size];
+        int[] second = new int[size];
+        mh.signatures(vector, sig, second);
+
+        double[] scores = new double[size];
+        for (int i = 0; i < size; i++) {
+            if (second[i] == Integer.MAX_VALUE) {
+                scores[i] = Double.POSITIVE_INFINITY;
+            } else {
+                scores[i] = (double) second[i] - sig[i];
+            }
+        }
+
+        return probeRows(sig, second, scores, probes);
+    }
+
+    /**
+     * Bin all these vectors to corresponding buckets, using parallelism
+     * threads. Each thread reuses its own buffers.
+     *
+     * @param vectors
+     * @param parallelism number of threads
+     * @return an array of vectors.length * s integers: the buckets of vector
+     * i are at index i * s to i * s + s - 1
+     */
+    public final int[] hashAll(
+            final boolean[][] vectors, final int parallelism) {
+        final int stages = getStages();
+        final int[] hashes = new int[vectors.length * stages];
+
+        new RangeTask() {
+            @Override
+            void process(final int from, final int to) {
+                int[] hash = new int[stages];
+                for (int i = from; i < to; i++) {
+                    LSHMinHash.this.hash(vectors[i], hash);
+                    System.arraycopy(hash, 0, hashes, i * stages, stages);
+                }
+            }
+        }.run(vectors.length, parallelism);
+
+        return hashes;
+    }
+
+    /**
+     * Bin all these vectors to corresponding buckets, using parallelism
+     * threads.
+     *
+     * @see #hashAll(boolean[][], int)
+     * @param vectors
+     * @param parallelism number of threads
+     * @return an array of s integers per vector, in iteration order
+     */
+    public final int[] hashAll(
+            final Iterable<boolean[]> vectors, final int parallelism) {
+        List<boolean[]> list = new ArrayList<boolean[]>();
+        for (boolean[] vector : vectors) {
+            list.add(vector);
+        }
+        return hashAll(list.toArray(new boolean[list.size()][]), parallelism);
+    }
+
+    private int[] signatureBuffer() {
+        ThreadLocal<int[]> local = signatures;
+        if (local == null) {
+            local = new ThreadLocal<int[]>() {
+                @Override
+                protected int[] initialValue() {
+                    return new int[mh.getSignatureSize()];
+                }
+            };
+            signatures = local;
+        }
+        return local.get();
+    }
+
     /**
      * Get the coefficients used by internal hashing functions.
      * @return
@@ -111,4 +258,59 @@ public class LSHMinHash extends LSH {
     public final long[][] getCoefficients() {
         return mh.getCoefficients();
     }
+
+    /**
+     * Write this LSH object in binary format: number of stages and buckets,
+     * followed by the internal MinHash (see MinHash.write).
+     *
+     * @param out
+     * @throws IOException if an I/O error occurs
+     */
+    public final void write(final DataOutput out) throws IOException {
+        writeConfiguration(out);
+        mh.write(out);
+    }
+
+    /**
+     * Write this LSH object in compact binary format: number of stages and
+     * buckets, followed by the parameters and seed of the internal MinHash
+     * (see MinHash.writeSeed).
+     *
+     * @param out
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if this object was not created with a
+     * seed
+     */
+    public final void writeSeed(final DataOutput out) throws IOException {
+        // check before writing anything to the stream
+        if (!mh.isSeeded()) {
+            throw new IllegalStateException(
+                    "This LSHMinHash was not created with a seed");
+        }
+
+        writeConfiguration(out);
+        mh.writeSeed(out);
+    }
+
+    /**
+     * Read a LSHMinHash written by write(out) or writeSeed(out).
+     *
+     * @param in
+     * @return the LSHMinHash
+     * @throws IOException if an I/O error occurs or the data is not a
+     * LSHMinHash binary model
+     */
+    public static LSHMinHash read(final DataInput in) throws IOException {
+        BinaryFormat.readHeader(in, BinaryFormat.TYPE_LSH_MINHASH);
+        int stages = in.readInt();
+        int buckets = in.readInt();
+        return new LSHMinHash(stages, buckets, MinHash.read(in));
+    }
+
+    private void writeConfiguration(final DataOutput out) throws IOException {
+        BinaryFormat.writeHeader(
+                out, BinaryFormat.TYPE_LSH_MINHASH, BinaryFormat.MODE_FULL);
+        out.writeInt(getStages());
+        out.writeInt(getBuckets());
+    }
 }
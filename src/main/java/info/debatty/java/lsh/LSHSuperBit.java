@@ -24,15 +24,55 @@
 
 package info.debatty.java.lsh;
 
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
+ * LSH implementation relying on SuperBit.
+ *
+ * LSHSuperBit objects can safely be used by multiple threads concurrently.
  *
  * @author Thibault Debatty
  */
 public class LSHSuperBit extends LSH implements Serializable {
+
+    private static final int PARAMETERS_SIZE = 8;
+
+    /**
+     * Size of the header and configuration written by write(out), before
+     * the internal SuperBit.
+     */
+    private static final int CONFIGURATION_SIZE =
+            BinaryFormat.HEADER_SIZE + PARAMETERS_SIZE;
+
     private SuperBit sb;
 
+    /**
+     * Structured projections, used instead of sb if the object was created
+     * with fast = true.
+     */
+    private FastSuperBit fast;
+
+    /**
+     * Memory-mapped hyperplanes, used instead of sb if the object was
+     * created with open(file).
+     */
+    private transient MappedSuperBit mapped;
+
+    /**
+     * Per-thread signature buffer, used by hash(vector, hash).
+     */
+    private transient volatile ThreadLocal<long[]> signatures;
+
     /**
      * LSH implementation relying on SuperBit, to bin vectors s times (stages)
      * in b buckets (per stage), in a space with n dimensions. Input vectors
@@ -42,7 +82,8 @@ public class LSHSuperBit extends LSH implements Serializable {
      * Supported input types:
      * - double[]
      * - int[]
-     * - others to come...
+     * - float[]
+     * - byte[] (int8 quantized vectors)
      *
      * @param stages stages
      * @param buckets buckets (per stage)
@@ -68,7 +109,8 @@ public class LSHSuperBit extends LSH implements Serializable {
      * Supported input types:
      * - double[]
      * - int[]
-     * - others to come...
+     * - float[]
+     * - byte[] (int8 quantized vectors)
      *
      * @param stages stages
      * @param buckets buckets (per stage)
@@ -92,6 +134,42 @@ public class LSHSuperBit extends LSH implements Serializable {
                 dimensions, superbit, code_length / superbit, seed);
     }
 
+    /**
+     * LSH implementation relying on SuperBit or on FastSuperBit, to bin
+     * vectors s times (stages) in b buckets (per stage), in a space with n
+     * dimensions.
+     *
+     * With fast = true, the signatures are computed with structured
+     * orthogonal projections (see FastSuperBit), that require O(d) memory
+     * and O(d log d) operations per vector (per block of d bits), instead of
+     * the K * d hyperplanes of SuperBit.
+     *
+     * @param stages stages
+     * @param buckets buckets (per stage)
+     * @param dimensions dimensionality
+     * @param seed random number generator seed. using the same value will
+     * guarantee identical hashes across object instantiations
+     * @param fast use FastSuperBit instead of SuperBit
+     */
+    public LSHSuperBit(
+            final int stages,
+            final int buckets,
+            final int dimensions,
+            final long seed,
+            final boolean fast) {
+
+        super(stages, buckets);
+
+        int code_length = stages * buckets / 2;
+        if (fast) {
+            this.fast = new FastSuperBit(dimensions, code_length, seed);
+        } else {
+            int superbit = computeSuperBit(stages, buckets, dimensions);
+            this.sb = new SuperBit(
+                    dimensions, superbit, code_length / superbit, seed);
+        }
+    }
+
     /**
      * Compute the superbit value.
      * @param stages
@@ -126,13 +204,335 @@ public class LSHSuperBit extends LSH implements Serializable {
     public LSHSuperBit() {
     }
 
+    /**
+     * LSH implementation with an existing SuperBit (used when reading a
+     * binary model).
+     */
+    private LSHSuperBit(
+            final int stages, final int buckets, final SuperBit sb) {
+        super(stages, buckets);
+        this.sb = sb;
+    }
+
+    /**
+     * LSH implementation with an existing FastSuperBit (used when reading a
+     * binary model).
+     */
+    private LSHSuperBit(
+            final int stages, final int buckets, final FastSuperBit fast) {
+        super(stages, buckets);
+        this.fast = fast;
+    }
+
+    /**
+     * LSH implementation with memory-mapped hyperplanes (see open).
+     */
+    private LSHSuperBit(
+            final int stages, final int buckets, final MappedSuperBit mapped) {
+        super(stages, buckets);
+        this.mapped = mapped;
+    }
+
+    /**
+     * Open a LSHSuperBit written by write(out) at the beginning of this
+     * file, without loading the hyperplanes on the heap: they are
+     * memory-mapped (see MappedSuperBit), hence the pages are shared by all
+     * the processes that open the same file.
+     *
+     * The returned object can be used like any LSHSuperBit (including with
+     * LSHIndex, SegmentedLSHIndex and SuperBitIndex). The dot products are
+     * computed with scalar code on the mapped hyperplanes: int[], float[]
+     * and byte[] vectors are converted to double[] (which allocates a
+     * vector per call), and hashAll hashes the vectors one by one. The
+     * object cannot be serialized, and writeSeed is not supported.
+     *
+     * @param file
+     * @return the LSHSuperBit
+     * @throws IOException if the file cannot be mapped, or does not contain
+     * a LSHSuperBit saved with write(out) (with all hyperplanes)
+     */
+    public static LSHSuperBit open(final File file) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        int stages;
+        int buckets;
+        try {
+            BinaryFormat.readHeader(in, BinaryFormat.TYPE_LSH_SUPERBIT);
+            stages = in.readInt();
+            buckets = in.readInt();
+        } finally {
+            in.close();
+        }
+
+        return new LSHSuperBit(
+                stages, buckets,
+                MappedSuperBit.open(file, CONFIGURATION_SIZE));
+    }
+
     /**
      * Hash (bin) a vector in s stages into b buckets.
      * @param vector
      * @return
      */
     public final int[] hash(final double[] vector) {
-        return hashSignature(sb.signature(vector));
+        return hash(vector, new int[getStages()]);
+    }
+
+    /**
+     * Hash (bin) a vector in s stages into b buckets, and write the result
+     * in the provided array (which must have one element per stage).
+     *
+     * The intermediate signature is computed in a buffer that is reused by
+     * each thread, so this method does not allocate any object in steady
+     * state.
+     *
+     * @param vector
+     * @param hash array in which the s buckets are written
+     * @return hash
+     */
+    public final int[] hash(final double[] vector, final int[] hash) {
+        long[] sig = signature(vector, signatureBuffer());
+        return hashSignature(sig, getCodeLength(), hash);
+    }
+
+    /**
+     * Compute the packed signature of this vector (used by SuperBitIndex),
+     * and write it in the provided array.
+     */
+    final long[] signature(final double[] vector, final long[] sig) {
+        if (fast != null) {
+            return fast.signature(vector, sig);
+        }
+        if (mapped != null) {
+            return mapped.signature(vector, sig);
+        }
+        return sb.signature(vector, sig);
+    }
+
+    /**
+     * Multi-probe LSH: for each stage, compute the bucket of this vector
+     * followed by neighbouring buckets, ranked by decreasing probability of
+     * containing similar vectors. Neighbouring buckets are obtained by
+     * flipping the bits of the stage whose dot product with the vector has
+     * the smallest magnitude (the bits that a similar vector is the most
+     * likely to have flipped).
+     *
+     * Querying an LSHIndex with these buckets (see LSHIndex.query(int[][]))
+     * reaches the same recall with fewer stages.
+     *
+     * @param vector
+     * @param probes maximum number of buckets per stage
+     * @return for each stage, up to probes buckets (the first one is the
+     * bucket returned by hash(vector))
+     */
+    public final int[][] probe(final double[] vector, final int probes) {
+        double[] margins = new double[getCodeLength()];
+        if (fast != null) {
+            fast.projections(vector, margins);
+        } else if (mapped != null) {
+            mapped.dotProducts(vector, margins);
+        } else {
+            sb.dotProducts(vector, margins);
+        }
+        return probeBits(margins, probes);
+    }
+
+    /**
+     * Hash (bin) all these vectors in s stages into b buckets, using
+     * parallelism threads. Each thread computes the signatures of its
+     * vectors by batches, using SuperBit.signatures, with its own buffers
+     * (or one by one if FastSuperBit or mapped hyperplanes are used).
+     *
+     * @param vectors
+     * @param parallelism number of threads
+     * @return an array of vectors.length * s integers: the buckets of vector
+     * i are at index i * s to i * s + s - 1
+     */
+    public final int[] hashAll(
+            final double[][] vectors, final int parallelism) {
+        final int stages = getStages();
+        final int[] hashes = new int[vectors.length * stages];
+
+        new RangeTask() {
+            @Override
+            void process(final int from, final int to) {
+                if (sb == null) {
+                    int[] hash = new int[stages];
+                    for (int v = from; v < to; v++) {
+                        LSHSuperBit.this.hash(vectors[v], hash);
+                        System.arraycopy(
+                                hash, 0, hashes, v * stages, stages);
+                    }
+                    return;
+                }
+
+                int d = sb.getDimension();
+                int code_length = sb.getCodeLength();
+                int words = SuperBit.words(code_length);
+                int tile = sb.getTileSize();
+
+                double[] block = new double[tile * d];
+                long[] sigs = new long[tile * words];
+                long[] sig = new long[words];
+                int[] hash = new int[stages];
+
+                for (int first = from; first < to; first += tile) {
+                    int count = Math.min(tile, to - first);
+                    for (int v = 0; v < count; v++) {
+                        if (vectors[first + v].length != d) {
+                            throw new IllegalArgumentException(
+                                    "Size of vector should be the dimension");
+                        }
+                        System.arraycopy(
+                                vectors[first + v], 0, block, v * d, d);
+                    }
+
+                    sb.signatures(block, count, sigs);
+                    for (int v = 0; v < count; v++) {
+                        System.arraycopy(sigs, v * words, sig, 0, words);
+                        hashSignature(sig, code_length, hash);
+                        System.arraycopy(
+                                hash, 0, hashes, (first + v) * stages, stages);
+                    }
+                }
+            }
+        }.run(vectors.length, parallelism);
+
+        return hashes;
+    }
+
+    /**
+     * Hash (bin) all these vectors in s stages into b buckets, using
+     * parallelism threads.
+     *
+     * @see #hashAll(double[][], int)
+     * @param vectors
+     * @param parallelism number of threads
+     * @return an array of s integers per vector, in iteration order
+     */
+    public final int[] hashAll(
+            final Iterable<double[]> vectors, final int parallelism) {
+        List<double[]> list = new ArrayList<double[]>();
+        for (double[] vector : vectors) {
+            list.add(vector);
+        }
+        return hashAll(list.toArray(new double[list.size()][]), parallelism);
+    }
+
+    /**
+     * Write this LSH object in binary format: number of stages and buckets,
+     * followed by the internal SuperBit (see SuperBit.write) or
+     * FastSuperBit. The file can be read with read(in), or mapped with
+     * open(file).
+     *
+     * @param out
+     * @throws IOException if an I/O error occurs
+     */
+    public final void write(final DataOutput out) throws IOException {
+        writeConfiguration(out);
+        if (fast != null) {
+            fast.write(out);
+        } else if (mapped != null) {
+            mapped.write(out);
+        } else {
+            sb.write(out);
+        }
+    }
+
+    /**
+     * Write this LSH object in compact binary format: number of stages and
+     * buckets, followed by the parameters and seed of the internal SuperBit
+     * (see SuperBit.writeSeed). A FastSuperBit is always saved with its
+     * seed.
+     *
+     * @param out
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if this object was not created with a
+     * seed (or was created with open(file))
+     */
+    public final void writeSeed(final DataOutput out) throws IOException {
+        // check before writing anything to the stream
+        if (fast == null && (sb == null || !sb.isSeeded())) {
+            throw new IllegalStateException(
+                    "This LSHSuperBit was not created with a seed");
+        }
+
+        writeConfiguration(out);
+        if (fast != null) {
+            fast.write(out);
+        } else {
+            sb.writeSeed(out);
+        }
+    }
+
+    /**
+     * Read a LSHSuperBit written by write(out) or writeSeed(out).
+     *
+     * @param in
+     * @return the LSHSuperBit
+     * @throws IOException if an I/O error occurs or the data is not a
+     * LSHSuperBit binary model
+     */
+    public static LSHSuperBit read(final DataInput in) throws IOException {
+        byte[] header = BinaryFormat.readHeader(
+                in,
+                BinaryFormat.TYPE_LSH_SUPERBIT,
+                BinaryFormat.TYPE_LSH_FAST_SUPERBIT);
+        int stages = in.readInt();
+        int buckets = in.readInt();
+        if (header[0] == BinaryFormat.TYPE_LSH_FAST_SUPERBIT) {
+            return new LSHSuperBit(stages, buckets, FastSuperBit.read(in));
+        }
+        return new LSHSuperBit(stages, buckets, SuperBit.read(in));
+    }
+
+    /**
+     * The mapped hyperplanes cannot be serialized.
+     */
+    private void writeObject(final ObjectOutputStream out)
+            throws IOException {
+        if (mapped != null) {
+            throw new NotSerializableException(
+                    "A LSHSuperBit with mapped hyperplanes cannot be "
+                    + "serialized");
+        }
+        out.defaultWriteObject();
+    }
+
+    private void writeConfiguration(final DataOutput out) throws IOException {
+        byte type = BinaryFormat.TYPE_LSH_SUPERBIT;
+        if (fast != null) {
+            type = BinaryFormat.TYPE_LSH_FAST_SUPERBIT;
+        }
+        BinaryFormat.writeHeader(out, type, BinaryFormat.MODE_FULL);
+        out.writeInt(getStages());
+        out.writeInt(getBuckets());
+    }
+
+    private long[] signatureBuffer() {
+        ThreadLocal<long[]> local = signatures;
+        if (local == null) {
+            local = new ThreadLocal<long[]>() {
+                @Override
+                protected long[] initialValue() {
+                    return new long[SuperBit.words(getCodeLength())];
+                }
+            };
+            signatures = local;
+        }
+        return local.get();
+    }
+
+    /**
+     * Get the code length of the internal SuperBit (or FastSuperBit).
+     */
+    final int getCodeLength() {
+        if (fast != null) {
+            return fast.getCodeLength();
+        }
+        if (mapped != null) {
+            return mapped.getCodeLength();
+        }
+        return sb.getCodeLength();
     }
 
     /**
@@ -141,11 +541,140 @@ public class LSHSuperBit extends LSH implements Serializable {
      * @return
      */
     public final int[] hash(final int[] vector) {
+        return hash(vector, new int[getStages()]);
+    }
 
-        double[] d = new double[vector.length];
-        for (int i = 0; i < vector.length; i++) {
-            d[i] = (double) vector[i];
+    /**
+     * Hash (bin) a vector in s stages into b buckets, and write the result
+     * in the provided array (which must have one element per stage). The
+     * vector is not converted to double[].
+     *
+     * @param vector
+     * @param hash array in which the s buckets are written
+     * @return hash
+     */
+    public final int[] hash(final int[] vector, final int[] hash) {
+        long[] sig = signatureBuffer();
+        if (fast != null) {
+            fast.signature(vector, sig);
+        } else if (mapped != null) {
+            double[] copy = new double[vector.length];
+            for (int i = 0; i < vector.length; i++) {
+                copy[i] = vector[i];
+            }
+            mapped.signature(copy, sig);
+        } else {
+            sb.signature(vector, sig);
+        }
+        return hashSignature(sig, getCodeLength(), hash);
+    }
+
+    /**
+     * Hash (bin) a single precision vector in s stages into b buckets.
+     *
+     * @see SuperBit#signature(float[], long[])
+     * @param vector
+     * @return
+     */
+    public final int[] hash(final float[] vector) {
+        return hash(vector, new int[getStages()]);
+    }
+
+    /**
+     * Hash (bin) a single precision vector in s stages into b buckets, and
+     * write the result in the provided array (which must have one element
+     * per stage).
+     *
+     * @see SuperBit#signature(float[], long[])
+     * @param vector
+     * @param hash array in which the s buckets are written
+     * @return hash
+     */
+    public final int[] hash(final float[] vector, final int[] hash) {
+        long[] sig = signatureBuffer();
+        if (fast != null) {
+            fast.signature(vector, sig);
+        } else if (mapped != null) {
+            double[] copy = new double[vector.length];
+            for (int i = 0; i < vector.length; i++) {
+                copy[i] = vector[i];
+            }
+            mapped.signature(copy, sig);
+        } else {
+            sb.signature(vector, sig);
+        }
+        return hashSignature(sig, getCodeLength(), hash);
+    }
+
+    /**
+     * Hash (bin) an int8 quantized vector in s stages into b buckets.
+     *
+     * @see SuperBit#signature(byte[], long[])
+     * @param vector
+     * @return
+     */
+    public final int[] hash(final byte[] vector) {
+        return hash(vector, new int[getStages()]);
+    }
+
+    /**
+     * Hash (bin) an int8 quantized vector in s stages into b buckets, and
+     * write the result in the provided array (which must have one element
+     * per stage).
+     *
+     * @see SuperBit#signature(byte[], long[])
+     * @param vector
+     * @param hash array in which the s buckets are written
+     * @return hash
+     */
+    public final int[] hash(final byte[] vector, final int[] hash) {
+        long[] sig = signatureBuffer();
+        if (fast != null) {
+            fast.signature(vector, sig);
+        } else if (mapped != null) {
+            double[] copy = new double[vector.length];
+            for (int i = 0; i < vector.length; i++) {
+                copy[i] = vector[i];
+            }
+            mapped.signature(copy, sig);
+        } else {
+            sb.signature(vector, sig);
+        }
+        return hashSignature(sig, getCodeLength(), hash);
+    }
+
+    /**
+     * Hash (bin) a sparse vector in s stages into b buckets.
+     *
+     * @see SuperBit#signature(int[], double[], long[])
+     * @param indices indices of the non-zero coordinates
+     * @param values values of the non-zero coordinates
+     * @return
+     */
+    public final int[] hash(final int[] indices, final double[] values) {
+        return hash(indices, values, new int[getStages()]);
+    }
+
+    /**
+     * Hash (bin) a sparse vector in s stages into b buckets, and write the
+     * result in the provided array (which must have one element per stage).
+     *
+     * @see SuperBit#signature(int[], double[], long[])
+     * @param indices indices of the non-zero coordinates
+     * @param values values of the non-zero coordinates
+     * @param hash array in which the s buckets are written
+     * @return hash
+     */
+    public final int[] hash(
+            final int[] indices, final double[] values, final int[] hash) {
+        long[] sig = signatureBuffer();
+        if (fast != null) {
+            fast.signature(indices, values, sig);
+        } else if (mapped != null) {
+            mapped.signature(indices, values, sig);
+        } else {
+            sb.signature(indices, values, sig);
         }
-        return hash(d);
+        return hashSignature(sig, getCodeLength(), hash);
     }
 }
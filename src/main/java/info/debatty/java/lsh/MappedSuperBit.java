@@ -0,0 +1,355 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only SuperBit whose hyperplanes are memory-mapped from a file written
+ * by SuperBit.write(DataOutput), instead of being loaded on the heap. To
+ * hash vectors (and use the indexes) with mapped hyperplanes, use
+ * LSHSuperBit.open(File) on a file written by LSHSuperBit.write.
+ *
+ * Opening the model does not read the hyperplanes: pages are loaded by the
+ * OS when they are first used, and are shared (through the page cache) by
+ * all the processes that map the same file. The hyperplanes do not use heap
+ * memory and are not scanned by the garbage collector.
+ *
+ * The dot products are computed with plain scalar code, hence the signatures
+ * are identical to the signatures computed by the SuperBit object that was
+ * saved, when the SIMD kernels are disabled (see Kernels). MappedSuperBit
+ * objects can safely be used by multiple threads concurrently.
+ *
+ * @author Thibault Debatty
+ */
+public class MappedSuperBit {
+
+    private static final int DOUBLE_SIZE = 8;
+    private static final int PARAMETERS_SIZE = 8;
+    private static final int WORD_SHIFT = 6;
+
+    /**
+     * Offset of the first hyperplane in the file.
+     */
+    private static final int DATA_OFFSET =
+            BinaryFormat.HEADER_SIZE + PARAMETERS_SIZE;
+
+    private final int dimension;
+    private final int code_length;
+
+    /**
+     * A single mapping is limited to 2GB, hence the hyperplanes are mapped by
+     * chunks of rows_per_chunk hyperplanes.
+     */
+    private final DoubleBuffer[] chunks;
+    private final int rows_per_chunk;
+
+    private MappedSuperBit(
+            final int dimension,
+            final int code_length,
+            final DoubleBuffer[] chunks,
+            final int rows_per_chunk) {
+        this.dimension = dimension;
+        this.code_length = code_length;
+        this.chunks = chunks;
+        this.rows_per_chunk = rows_per_chunk;
+    }
+
+    /**
+     * Map the hyperplanes of a SuperBit saved (in FULL mode) with
+     * SuperBit.write(DataOutput) at the beginning of this file.
+     *
+     * @param file
+     * @return the mapped SuperBit
+     * @throws IOException if the file cannot be mapped, or does not contain
+     * a SuperBit binary model with all hyperplanes
+     */
+    public static MappedSuperBit open(final File file) throws IOException {
+        return open(file, 0);
+    }
+
+    /**
+     * Map the hyperplanes of a SuperBit saved (in FULL mode) at this offset
+     * of the file (used by LSHSuperBit.open, as the SuperBit follows the
+     * configuration of the LSH object).
+     */
+    static MappedSuperBit open(final File file, final long offset)
+            throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+
+            ByteBuffer header = ByteBuffer.allocate(DATA_OFFSET);
+            while (header.hasRemaining()) {
+                if (channel.read(header, offset + header.position()) < 0) {
+                    throw new IOException("File is too small");
+                }
+            }
+
+            DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(header.array()));
+            byte mode = BinaryFormat.readHeader(
+                    in, BinaryFormat.TYPE_SUPERBIT);
+            if (mode != BinaryFormat.MODE_FULL) {
+                throw new IOException(
+                        "Only models saved with all hyperplanes can be mapped");
+            }
+
+            int d = in.readInt();
+            int k = in.readInt();
+            if (d <= 0 || k <= 0) {
+                throw new IOException("Invalid SuperBit parameters");
+            }
+
+            long row_size = (long) d * DOUBLE_SIZE;
+            long data = offset + DATA_OFFSET;
+            if (channel.size() < data + k * row_size) {
+                throw new IOException("File is truncated");
+            }
+
+            int rows_per_chunk =
+                    (int) Math.min(k, Integer.MAX_VALUE / row_size);
+            if (rows_per_chunk == 0) {
+                throw new IOException("Dimension is too large to be mapped");
+            }
+
+            int count = (k + rows_per_chunk - 1) / rows_per_chunk;
+            DoubleBuffer[] chunks = new DoubleBuffer[count];
+            for (int c = 0; c < count; c++) {
+                int rows = Math.min(rows_per_chunk, k - c * rows_per_chunk);
+                chunks[c] = channel.map(
+                        FileChannel.MapMode.READ_ONLY,
+                        data + c * rows_per_chunk * row_size,
+                        rows * row_size).asDoubleBuffer();
+            }
+
+            return new MappedSuperBit(d, k, chunks, rows_per_chunk);
+
+        } finally {
+            // the mapping remains valid after the channel is closed
+            raf.close();
+        }
+    }
+
+    /**
+     * Compute the signature of this vector.
+     * @param vector
+     * @return the signature
+     */
+    public final boolean[] signature(final double[] vector) {
+        checkDimension(vector);
+        boolean[] sig = new boolean[code_length];
+        for (int i = 0; i < code_length; i++) {
+            sig[i] = dotProduct(i, vector) >= 0;
+        }
+        return sig;
+    }
+
+    /**
+     * Compute the signature of this vector, packed in an array of longs
+     * (see SuperBit.packedSignature).
+     * @param vector
+     * @return the packed signature
+     */
+    public final long[] packedSignature(final double[] vector) {
+        return signature(vector, new long[SuperBit.words(code_length)]);
+    }
+
+    /**
+     * Compute the packed signature of this vector, and write it in the
+     * provided array (which must contain (code length + 63) / 64 longs).
+     *
+     * @param vector
+     * @param sig array in which the packed signature is written
+     * @return sig
+     */
+    public final long[] signature(final double[] vector, final long[] sig) {
+        checkDimension(vector);
+        checkPackedSize(sig);
+
+        for (int i = 0; i < code_length; i++) {
+            if (dotProduct(i, vector) >= 0) {
+                sig[i >>> WORD_SHIFT] |= 1L << i;
+            }
+        }
+        return sig;
+    }
+
+    /**
+     * Compute the packed signature of this sparse vector, and write it in
+     * the provided array (which must contain (code length + 63) / 64 longs).
+     * Only the coefficients of the non-zero coordinates are read, hence the
+     * cost is O(K * nnz), without a column-major copy of the hyperplanes.
+     *
+     * @see SuperBit#signature(int[], double[], long[])
+     * @param indices indices of the non-zero coordinates, in [0, d[
+     * @param values values of the non-zero coordinates
+     * @param sig array in which the packed signature is written
+     * @return sig
+     */
+    public final long[] signature(
+            final int[] indices, final double[] values, final long[] sig) {
+        if (indices.length != values.length) {
+            throw new IllegalArgumentException(
+                    "indices and values should have the same size");
+        }
+        for (int index : indices) {
+            if (index < 0 || index >= dimension) {
+                throw new IllegalArgumentException(
+                        "Indices should be in [0, d[");
+            }
+        }
+        checkPackedSize(sig);
+
+        for (int i = 0; i < code_length; i++) {
+            DoubleBuffer chunk = chunks[i / rows_per_chunk];
+            int offset = (i % rows_per_chunk) * dimension;
+
+            double agg = 0;
+            for (int j = 0; j < indices.length; j++) {
+                agg += chunk.get(offset + indices[j]) * values[j];
+            }
+            if (agg >= 0) {
+                sig[i >>> WORD_SHIFT] |= 1L << i;
+            }
+        }
+        return sig;
+    }
+
+    /**
+     * Compute the dot product between each hyperplane and this vector (used
+     * for multi-probe LSH).
+     */
+    final double[] dotProducts(final double[] vector, final double[] dest) {
+        checkDimension(vector);
+        for (int i = 0; i < code_length; i++) {
+            dest[i] = dotProduct(i, vector);
+        }
+        return dest;
+    }
+
+    /**
+     * Write the mapped hyperplanes in the binary format of
+     * SuperBit.write(DataOutput).
+     *
+     * @param out
+     * @throws IOException if an I/O error occurs
+     */
+    public final void write(final DataOutput out) throws IOException {
+        BinaryFormat.writeHeader(
+                out, BinaryFormat.TYPE_SUPERBIT, BinaryFormat.MODE_FULL);
+        out.writeInt(dimension);
+        out.writeInt(code_length);
+
+        byte[] buffer = BinaryFormat.newBuffer();
+        double[] hyperplane = new double[dimension];
+        for (int i = 0; i < code_length; i++) {
+            DoubleBuffer chunk = chunks[i / rows_per_chunk].duplicate();
+            chunk.position((i % rows_per_chunk) * dimension);
+            chunk.get(hyperplane);
+            BinaryFormat.writeDoubles(out, hyperplane, buffer);
+        }
+    }
+
+    /**
+     * Compute the similarity between two packed signatures, which is also an
+     * estimation of the cosine similarity between the two vectors.
+     *
+     * @param sig1
+     * @param sig2
+     * @return estimated cosine similarity
+     */
+    public final double similarity(final long[] sig1, final long[] sig2) {
+        if (sig1.length != sig2.length) {
+            throw new IllegalArgumentException(
+                    "Size of signatures should be the same");
+        }
+
+        double agg = code_length - SuperBit.hammingDistance(sig1, sig2);
+        agg = agg / code_length;
+
+        return Math.cos((1 - agg) * Math.PI);
+    }
+
+    /**
+     * Get the code length (the size of the signatures).
+     * @return the code length
+     */
+    public final int getCodeLength() {
+        return code_length;
+    }
+
+    /**
+     * Get the dimension of the vectors.
+     * @return the dimension
+     */
+    public final int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Dot product between hyperplane i and this vector, summed in the same
+     * order as SuperBit.
+     */
+    private double dotProduct(final int i, final double[] vector) {
+        DoubleBuffer chunk = chunks[i / rows_per_chunk];
+        int offset = (i % rows_per_chunk) * dimension;
+
+        double agg = 0;
+        for (int j = 0; j < dimension; j++) {
+            agg += chunk.get(offset + j) * vector[j];
+        }
+        return agg;
+    }
+
+    /**
+     * Check the size of the packed signature array, and clear it.
+     */
+    private void checkPackedSize(final long[] sig) {
+        if (sig.length != SuperBit.words(code_length)) {
+            throw new IllegalArgumentException(
+                    "Size of signature array should be (K + 63) / 64");
+        }
+
+        for (int w = 0; w < sig.length; w++) {
+            sig[w] = 0;
+        }
+    }
+
+    private void checkDimension(final double[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(
+                    "Size of vector should be the dimension d");
+        }
+    }
+}
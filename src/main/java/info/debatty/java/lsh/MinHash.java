@@ -1,11 +1,11 @@
 package info.debatty.java.lsh;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.security.InvalidParameterException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
@@ -24,6 +24,9 @@ import java.util.TreeSet;
  * error is O(1 / sqrt(n)), where n is the size of the signature (the number of
  * hash functions that are used to produce the signature).
  *
+ * Once constructed, a MinHash object is never modified: it can safely be
+ * used by multiple threads concurrently to compute signatures.
+ *
  * @author Thibault Debatty http://www.debatty.info
  */
 public class MinHash implements Serializable {
@@ -102,9 +105,13 @@ public class MinHash implements Serializable {
     private int n;
 
     /**
-     * Random a and b coefficients for the random hash functions.
+     * Random a and b coefficients for the random hash functions
+     * hi(x) = (a[i] * x + b[i]) % LARGE_PRIME. The coefficients are stored
+     * in two flat arrays, so all hash functions can be evaluated for an
+     * element in a single loop, that the JIT can vectorize.
      */
-    private long[][] hash_coefs;
+    private long[] coef_a;
+    private long[] coef_b;
 
     /**
      * Dictionary size (is also the size of vectors if the sets are provided
@@ -112,6 +119,13 @@ public class MinHash implements Serializable {
      */
     private int dict_size;
 
+    /**
+     * Seed of the random number generator, if one was provided (used to save
+     * the model in the compact SEED binary format).
+     */
+    private long seed;
+    private boolean seeded;
+
     /**
      * Initializes hash functions to compute MinHash signatures for sets built
      * from a dictionary of dict_size elements.
@@ -148,6 +162,8 @@ public class MinHash implements Serializable {
      */
     public MinHash(final int size, final int dict_size, final long seed) {
         init(size, dict_size, new Random(seed));
+        this.seed = seed;
+        this.seeded = true;
     }
 
     /**
@@ -161,7 +177,22 @@ public class MinHash implements Serializable {
      * guarantee identical hashes across object instantiations
      */
     public MinHash(final double error, final int dict_size, final long seed) {
-        init(size(error), dict_size, new Random(seed));
+        this(size(error), dict_size, seed);
+    }
+
+    /**
+     * Instantiate a MinHash with the provided coefficients (used when
+     * reading a binary model).
+     */
+    private MinHash(
+            final int size,
+            final int dict_size,
+            final long[] coef_a,
+            final long[] coef_b) {
+        this.n = size;
+        this.dict_size = dict_size;
+        this.coef_a = coef_a;
+        this.coef_b = coef_b;
     }
 
     /**
@@ -174,12 +205,32 @@ public class MinHash implements Serializable {
      * @return the signature
      */
     public final int[] signature(final boolean[] vector) {
+        return signature(vector, new int[n]);
+    }
+
+    /**
+     * Computes the signature for this set, represented as a vector of
+     * booleans, and writes it in the provided array (which must have the size
+     * of the signature). This method does not allocate any object.
+     *
+     * @param vector
+     * @param sig array in which the signature is written
+     * @return sig
+     */
+    public final int[] signature(final boolean[] vector, final int[] sig) {
         if (vector.length != dict_size) {
             throw new IllegalArgumentException(
                     "Size of array should be dict_size");
         }
 
-        return signature(convert2Set(vector));
+        initSignature(sig);
+        for (int r = 0; r < vector.length; r++) {
+            if (vector[r]) {
+                update(sig, r);
+            }
+        }
+
+        return sig;
     }
 
     /**
@@ -189,11 +240,19 @@ public class MinHash implements Serializable {
      * @return the signature
      */
     public final int[] signature(final Set<Integer> set) {
-        int[] sig = new int[n];
+        return signature(set, new int[n]);
+    }
 
-        for (int i = 0; i < n; i++) {
-            sig[i] = Integer.MAX_VALUE;
-        }
+    /**
+     * Computes the signature for this set, and writes it in the provided
+     * array (which must have the size of the signature).
+     *
+     * @param set
+     * @param sig array in which the signature is written
+     * @return sig
+     */
+    public final int[] signature(final Set<Integer> set, final int[] sig) {
+        initSignature(sig);
 
         // For each row r:
         //for (int r = 0; r < dict_size; r++) {
@@ -203,24 +262,136 @@ public class MinHash implements Serializable {
         //    }
         // Loop over true values, instead of loop over all values of dictionary
         // to speedup computation
-        final List<Integer> list = new ArrayList<Integer>(set);
-        Collections.sort(list);
+        for (final int r : set) {
+            update(sig, r);
+        }
 
-        for (final int r : list) {
+        return sig;
+    }
 
-            // However, if c has 1 in row r, then for each i = 1, 2, . . . ,n
-            // set SIG(i, c) to the smaller of the current value of
-            // SIG(i, c) and hi(r)
-            for (int i = 0; i < n; i++) {
-                sig[i] = Math.min(
-                        sig[i],
-                        h(i, r));
-            }
+    /**
+     * Computes the signature for this set, given as an array of element ids.
+     * For example {0, 2, 3}. The ids do not need to be sorted, and duplicates
+     * do not change the signature.
+     *
+     * Apart from the signature itself, this method does not allocate any
+     * object.
+     *
+     * @param set
+     * @return the signature
+     */
+    public final int[] signature(final int[] set) {
+        return signature(set, new int[n]);
+    }
+
+    /**
+     * Computes the signature for this set, given as an array of element ids,
+     * and writes it in the provided array (which must have the size of the
+     * signature). This method does not allocate any object.
+     *
+     * @param set
+     * @param sig array in which the signature is written
+     * @return sig
+     */
+    public final int[] signature(final int[] set, final int[] sig) {
+        initSignature(sig);
+        for (int j = 0; j < set.length; j++) {
+            update(sig, set[j]);
         }
 
         return sig;
     }
 
+    /**
+     * Computes the signature for the set of element ids produced by this
+     * iterator.
+     *
+     * Apart from the signature itself, this method does not allocate any
+     * object.
+     *
+     * @param set
+     * @return the signature
+     */
+    public final int[] signature(final IntIterator set) {
+        return signature(set, new int[n]);
+    }
+
+    /**
+     * Computes the signature for the set of element ids produced by this
+     * iterator, and writes it in the provided array (which must have the
+     * size of the signature). This method does not allocate any object.
+     *
+     * @param set
+     * @param sig array in which the signature is written
+     * @return sig
+     */
+    public final int[] signature(final IntIterator set, final int[] sig) {
+        initSignature(sig);
+        while (set.hasNext()) {
+            update(sig, set.next());
+        }
+
+        return sig;
+    }
+
+    private void initSignature(final int[] sig) {
+        if (sig.length != n) {
+            throw new IllegalArgumentException(
+                    "Size of signature array should be the signature size");
+        }
+
+        for (int i = 0; i < n; i++) {
+            sig[i] = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * If the set has 1 in row r, then for each i = 1, 2, . . . ,n
+     * set SIG(i, c) to the smaller of the current value of SIG(i, c)
+     * and hi(r). Also used by MinHashSketch.
+     *
+     * @param sig
+     * @param r
+     */
+    final void update(final int[] sig, final int r) {
+        Kernels.get().minHash(coef_a, coef_b, r, sig);
+    }
+
+    /**
+     * Computes the signature of this set, and for each hash function the
+     * second smallest hash value (or Integer.MAX_VALUE if there is none).
+     * Used by multi-probe LSH.
+     *
+     * @param vector
+     * @param sig array in which the signature is written
+     * @param second array in which the second smallest values are written
+     */
+    final void signatures(
+            final boolean[] vector, final int[] sig, final int[] second) {
+        if (vector.length != dict_size) {
+            throw new IllegalArgumentException(
+                    "Size of array should be dict_size");
+        }
+
+        initSignature(sig);
+        initSignature(second);
+        for (int r = 0; r < vector.length; r++) {
+            if (!vector[r]) {
+                continue;
+            }
+
+            for (int i = 0; i < n; i++) {
+                int h = (int) ((coef_a[i] * r + coef_b[i]) % LARGE_PRIME);
+                if (h < sig[i]) {
+                    second[i] = sig[i];
+                    sig[i] = h;
+                } else if (h < second[i] && h != sig[i]) {
+                    second[i] = h;
+                }
+            }
+        }
+    }
+
     /**
      * Computes an estimation of Jaccard similarity (the number of elements in
      * common) between two sets, using the MinHash signatures of these two sets.
@@ -246,6 +417,15 @@ public class MinHash implements Serializable {
         return sim / sig1.length;
     }
 
+    /**
+     * Get the size of the signatures produced by this MinHash.
+     *
+     * @return the signature size
+     */
+    public final int getSignatureSize() {
+        return n;
+    }
+
     /**
      * Computes the expected error of similarity computed using signatures.
      *
@@ -272,7 +452,8 @@ public class MinHash implements Serializable {
                     "Dictionary size (or vector size) should be positive");
         }
 
-        // In function h(i, x) the largest value could be
+        // In hash function (a_i * x + b_i) % LARGE_PRIME the largest value
+        // could be
         // dict_size * dict_size + dict_size
         // throw an error if dict_size * dict_size + dict_size > Long.MAX_VALUE
         if (dict_size > (Long.MAX_VALUE - dict_size) / dict_size) {
@@ -286,31 +467,110 @@ public class MinHash implements Serializable {
 
         // h = (a * x) + b
         // a and b should be randomly generated in [1,PRIME-1]
-        hash_coefs = new long[n][2];
+        coef_a = new long[n];
+        coef_b = new long[n];
+        for (int i = 0; i < n; i++) {
+            coef_a[i] = r.nextInt(LARGE_PRIME - 1) + 1;
+            coef_b[i] = r.nextInt(LARGE_PRIME - 1) + 1;
+        }
+    }
+
+    /**
+     * Write this MinHash in binary format: signature size, dictionary size
+     * and all the coefficients of the hash functions (8 bytes per hash
+     * function).
+     *
+     * @param out
+     * @throws IOException if an I/O error occurs
+     */
+    public final void write(final DataOutput out) throws IOException {
+        BinaryFormat.writeHeader(
+                out, BinaryFormat.TYPE_MINHASH, BinaryFormat.MODE_FULL);
+        out.writeInt(n);
+        out.writeInt(dict_size);
         for (int i = 0; i < n; i++) {
-            hash_coefs[i][0] = r.nextInt(LARGE_PRIME - 1) + 1; // a
-            hash_coefs[i][1] = r.nextInt(LARGE_PRIME - 1) + 1; // b
+            out.writeInt((int) coef_a[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            out.writeInt((int) coef_b[i]);
         }
     }
 
     /**
-     * Computes hi(x) as (a_i * x + b_i) % LARGE_PRIME .
+     * Write this MinHash in compact binary format: only the signature size,
+     * the dictionary size and the seed are stored. The coefficients are
+     * regenerated from the seed when the model is read.
      *
-     * @param i
-     * @param x
-     * @return the hashed value of x, using ith hash function
-     */
-    private int h(final int i, final int x) {
-        return (int)
-                ((hash_coefs[i][0] * (long) x + hash_coefs[i][1])
-                 % LARGE_PRIME);
+     * @param out
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if this MinHash was not created with a
+     * seed
+     */
+    public final void writeSeed(final DataOutput out) throws IOException {
+        if (!isSeeded()) {
+            throw new IllegalStateException(
+                    "This MinHash was not created with a seed");
+        }
+
+        BinaryFormat.writeHeader(
+                out, BinaryFormat.TYPE_MINHASH, BinaryFormat.MODE_SEED);
+        out.writeInt(n);
+        out.writeInt(dict_size);
+        out.writeLong(seed);
     }
 
     /**
-     * Get the coefficients used by hash function hi.
+     * Check if this MinHash was created with a seed (and can thus be saved
+     * with writeSeed).
+     */
+    final boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * Read a MinHash written by write(out) or writeSeed(out).
+     *
+     * @param in
+     * @return the MinHash
+     * @throws IOException if an I/O error occurs or the data is not a
+     * MinHash binary model
+     */
+    public static MinHash read(final DataInput in) throws IOException {
+        byte mode = BinaryFormat.readHeader(in, BinaryFormat.TYPE_MINHASH);
+        int size = in.readInt();
+        int dict_size = in.readInt();
+
+        if (mode == BinaryFormat.MODE_SEED) {
+            return new MinHash(size, dict_size, in.readLong());
+        }
+
+        if (size <= 0 || dict_size <= 0) {
+            throw new IOException("Invalid MinHash parameters");
+        }
+
+        long[] coef_a = new long[size];
+        long[] coef_b = new long[size];
+        for (int i = 0; i < size; i++) {
+            coef_a[i] = in.readInt();
+        }
+        for (int i = 0; i < size; i++) {
+            coef_b[i] = in.readInt();
+        }
+        return new MinHash(size, dict_size, coef_a, coef_b);
+    }
+
+    /**
+     * Get the coefficients used by hash function hi: getCoefficients()[i][0]
+     * is a and getCoefficients()[i][1] is b. The coefficients are not stored
+     * in this form, hence this method returns a new array.
      * @return
      */
     public final long[][] getCoefficients() {
-        return hash_coefs;
+        long[][] coefs = new long[n][2];
+        for (int i = 0; i < n; i++) {
+            coefs[i][0] = coef_a[i];
+            coefs[i][1] = coef_b[i];
+        }
+        return coefs;
     }
 }
@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+/**
+ * Index of sets that answers top-k (nearest neighbors) queries.
+ *
+ * The sets are binned with LSHMinHash, and their MinHash signature is kept
+ * in a flat int array. A query retrieves the candidates (the sets that
+ * share a bucket with the query for at least one stage), ranks them by
+ * estimated Jaccard similarity (the fraction of identical MinHash values)
+ * with a bounded heap, and returns the k best. Optionally, the best
+ * candidates are re-ranked by exact Jaccard index, using the original
+ * vectors provided by a VectorStore.
+ *
+ * This class is not thread-safe.
+ *
+ * @author Thibault Debatty
+ * @param <K> type of the keys associated to the sets
+ */
+public class MinHashIndex<K> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final LSHMinHash lsh;
+    private final LSHIndex<K> index;
+    private final int signature_size;
+
+    /**
+     * Signatures of all sets, stored as a flat array of size
+     * count * signature_size.
+     */
+    private int[] signatures;
+
+    /**
+     * Reused by each query to deduplicate the candidates.
+     */
+    private final Candidates collector = new Candidates();
+
+    /**
+     * Create an empty index of sets binned with this LSHMinHash.
+     *
+     * @param lsh
+     */
+    public MinHashIndex(final LSHMinHash lsh) {
+        this.lsh = lsh;
+        this.index = new LSHIndex<K>(lsh);
+        this.signature_size = lsh.getSignatureSize();
+        this.signatures = new int[INITIAL_CAPACITY * signature_size];
+    }
+
+    /**
+     * Add a set to the index.
+     *
+     * @param key key associated to this set
+     * @param vector the set, as a boolean vector
+     * @return the id of this set
+     */
+    public final int add(final K key, final boolean[] vector) {
+        int[] sig = lsh.signature(vector);
+        int id = index.add(key, lsh.hashSignature(sig));
+        if ((id + 1) * signature_size > signatures.length) {
+            int[] copy = new int[2 * signatures.length];
+            System.arraycopy(signatures, 0, copy, 0, signatures.length);
+            signatures = copy;
+        }
+
+        System.arraycopy(
+                sig, 0, signatures, id * signature_size, signature_size);
+        return id;
+    }
+
+    /**
+     * Get the (at most) k sets that are the most similar to this set,
+     * among the candidates that share a bucket with it, by decreasing
+     * estimated Jaccard similarity.
+     *
+     * @param vector the query set
+     * @param k
+     * @return the k nearest neighbors
+     */
+    public final Neighbors query(final boolean[] vector, final int k) {
+        return rank(lsh.signature(vector), k).drain();
+    }
+
+    /**
+     * Get the (at most) k sets that are the most similar to this set: the
+     * best candidates (by estimated similarity) are re-ranked by exact
+     * Jaccard index, using the vectors provided by the store.
+     *
+     * @param vector the query set
+     * @param k
+     * @param store provides the vector of each set
+     * @param candidates number of candidates to re-rank (>= k)
+     * @return the k nearest neighbors, with exact similarities
+     */
+    public final Neighbors query(
+            final boolean[] vector, final int k,
+            final VectorStore<K, boolean[]> store, final int candidates) {
+        if (candidates < k) {
+            throw new IllegalArgumentException("candidates must be >= k");
+        }
+
+        Neighbors estimated = rank(lsh.signature(vector), candidates).drain();
+        TopK top = new TopK(k);
+        for (int i = 0; i < estimated.size(); i++) {
+            int id = estimated.getId(i);
+            top.offer(id, MinHash.jaccardIndex(
+                    vector, store.get(index.getKey(id))));
+        }
+        return top.drain();
+    }
+
+    /**
+     * Get the key associated to this set.
+     *
+     * @param id id of the set
+     * @return the key
+     */
+    public final K getKey(final int id) {
+        return index.getKey(id);
+    }
+
+    /**
+     * Get the number of sets in the index.
+     *
+     * @return the number of sets
+     */
+    public final int size() {
+        return index.size();
+    }
+
+    /**
+     * Rank the candidates by estimated similarity with this signature.
+     */
+    private TopK rank(final int[] sig, final int k) {
+        TopK top = new TopK(k);
+        index.query(lsh.hashSignature(sig), collector);
+        for (int c = 0; c < collector.size(); c++) {
+            int id = collector.getId(c);
+            int offset = id * signature_size;
+            int identical = 0;
+            for (int i = 0; i < signature_size; i++) {
+                if (signatures[offset + i] == sig[i]) {
+                    identical++;
+                }
+            }
+            top.offer(id, (double) identical / signature_size);
+        }
+        return top;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.io.Serializable;
+
+/**
+ * Incrementally maintained MinHash signature of a growing set.
+ *
+ * Elements can be added one by one (for example as the tokens of a document
+ * arrive), and the signature is always the MinHash signature of all the
+ * elements added so far: it is identical to the signature of the complete
+ * set computed by MinHash.signature. As MinHash signatures are the
+ * element-wise minimum over the elements of the set, the partial signatures
+ * of different parts of a set (for example computed on different shards)
+ * can be merged without scanning the elements again.
+ *
+ * A MinHashSketch is not thread safe.
+ *
+ * @author Thibault Debatty
+ */
+public class MinHashSketch implements Serializable {
+
+    private final MinHash mh;
+    private final int[] sig;
+
+    /**
+     * Create an empty sketch, that uses the hash functions of this MinHash.
+     *
+     * @param mh
+     */
+    public MinHashSketch(final MinHash mh) {
+        this.mh = mh;
+        this.sig = new int[mh.getSignatureSize()];
+        clear();
+    }
+
+    /**
+     * Add an element to the set.
+     *
+     * @param element
+     */
+    public final void add(final int element) {
+        mh.update(sig, element);
+    }
+
+    /**
+     * Add all these elements to the set.
+     *
+     * @param elements
+     */
+    public final void addAll(final int[] elements) {
+        for (int j = 0; j < elements.length; j++) {
+            mh.update(sig, elements[j]);
+        }
+    }
+
+    /**
+     * Add the elements of another sketch (the union of the two sets). The
+     * other sketch must use the same hash functions.
+     *
+     * @param other
+     */
+    public final void merge(final MinHashSketch other) {
+        merge(other.sig);
+    }
+
+    /**
+     * Add the elements represented by a signature (computed with the same
+     * hash functions) to the set. This is the element-wise minimum of the
+     * two signatures.
+     *
+     * @param signature
+     */
+    public final void merge(final int[] signature) {
+        if (signature.length != sig.length) {
+            throw new IllegalArgumentException(
+                    "Size of signature should be the signature size");
+        }
+
+        for (int i = 0; i < sig.length; i++) {
+            sig[i] = Math.min(sig[i], signature[i]);
+        }
+    }
+
+    /**
+     * Remove all the elements.
+     */
+    public final void clear() {
+        for (int i = 0; i < sig.length; i++) {
+            sig[i] = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Get the signature of the elements added so far.
+     *
+     * @return a copy of the signature
+     */
+    public final int[] signature() {
+        return signature(new int[sig.length]);
+    }
+
+    /**
+     * Write the signature of the elements added so far in the provided
+     * array (which must have the size of the signature).
+     *
+     * @param copy array in which the signature is written
+     * @return copy
+     */
+    public final int[] signature(final int[] copy) {
+        if (copy.length != sig.length) {
+            throw new IllegalArgumentException(
+                    "Size of signature array should be the signature size");
+        }
+
+        System.arraycopy(sig, 0, copy, 0, sig.length);
+        return copy;
+    }
+
+    /**
+     * Get the MinHash that provides the hash functions.
+     *
+     * @return the MinHash
+     */
+    public final MinHash getMinHash() {
+        return mh;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Generates the buckets of a stage that are close to the bucket of a query,
+ * for multi-probe LSH (Lv et al., 2007, "Multi-Probe LSH: Efficient
+ * Indexing for High-Dimensional Similarity Search").
+ *
+ * The bucket of a stage is computed from an accumulator. Each row of the
+ * stage can be perturbed (a SuperBit bit can be flipped, a MinHash value
+ * can be replaced), which adds a delta to the accumulator and has a score:
+ * the smaller the score, the more likely a similar item is hashed with
+ * this row perturbed. Sets of perturbations are generated by increasing
+ * total score, using the shift / expand operations of Lv et al. on the rows
+ * sorted by score.
+ *
+ * @author Thibault Debatty
+ */
+final class MultiProbe {
+
+    private MultiProbe() {
+    }
+
+    /**
+     * Compute up to probes distinct buckets for a stage: the bucket of the
+     * query, followed by the buckets obtained with the perturbation sets of
+     * lowest score. Perturbation sets that lead to a bucket that is already
+     * in the result are skipped. Perturbations with an infinite score are
+     * never used.
+     *
+     * @param home accumulator of the query, in [0, modulus[
+     * @param deltas change of the accumulator if the row is perturbed
+     * @param scores score of the perturbation of the row
+     * @param first first row of the stage
+     * @param count number of rows of the stage
+     * @param modulus modulus of the accumulator
+     * @param buckets number of buckets
+     * @param probes maximum number of buckets to produce
+     * @return the buckets, ranked by increasing score
+     */
+    static int[] probeStage(
+            final long home,
+            final long[] deltas,
+            final double[] scores,
+            final int first,
+            final int count,
+            final long modulus,
+            final int buckets,
+            final int probes) {
+
+        int[] result = new int[probes];
+        result[0] = (int) (home % buckets);
+        int produced = 1;
+
+        // Rows of the stage, sorted by score
+        int[] rows = new int[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = first + i;
+        }
+        sortByScore(rows, scores);
+
+        double[] row_scores = new double[count];
+        for (int i = 0; i < count; i++) {
+            row_scores[i] = scores[rows[i]];
+        }
+
+        PriorityQueue<Perturbation> heap = new PriorityQueue<Perturbation>();
+        if (count > 0) {
+            heap.add(new Perturbation(new int[] {0}, row_scores[0]));
+        }
+
+        while (produced < probes && !heap.isEmpty()) {
+            Perturbation perturbation = heap.poll();
+            if (Double.isInfinite(perturbation.score)) {
+                break;
+            }
+
+            long accumulator = home;
+            for (int position : perturbation.positions) {
+                accumulator += deltas[rows[position]];
+            }
+            accumulator = ((accumulator % modulus) + modulus) % modulus;
+            int bucket = (int) (accumulator % buckets);
+            if (!contains(result, produced, bucket)) {
+                result[produced] = bucket;
+                produced++;
+            }
+
+            int[] positions = perturbation.positions;
+            int last = positions[positions.length - 1];
+            if (last + 1 < count) {
+                // shift: replace the last row by the next one
+                int[] shifted = Arrays.copyOf(positions, positions.length);
+                shifted[positions.length - 1] = last + 1;
+                heap.add(new Perturbation(
+                        shifted,
+                        perturbation.score - row_scores[last]
+                                + row_scores[last + 1]));
+
+                // expand: add the next row
+                int[] expanded = Arrays.copyOf(
+                        positions, positions.length + 1);
+                expanded[positions.length] = last + 1;
+                heap.add(new Perturbation(
+                        expanded,
+                        perturbation.score + row_scores[last + 1]));
+            }
+        }
+
+        return Arrays.copyOf(result, produced);
+    }
+
+    /**
+     * Check if this bucket is in the first length elements of the array
+     * (probes is small, hence a linear scan is faster than a set).
+     */
+    private static boolean contains(
+            final int[] array, final int length, final int bucket) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == bucket) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sort these rows by increasing score (stable merge sort, without
+     * boxing the rows).
+     */
+    static void sortByScore(final int[] rows, final double[] scores) {
+        int[] source = rows;
+        int[] dest = new int[rows.length];
+        for (int width = 1; width < rows.length; width *= 2) {
+            for (int low = 0; low < rows.length; low += 2 * width) {
+                int middle = Math.min(low + width, rows.length);
+                int high = Math.min(low + 2 * width, rows.length);
+                int left = low;
+                int right = middle;
+                for (int i = low; i < high; i++) {
+                    if (left < middle && (right >= high
+                            || Double.compare(
+                                    scores[source[left]],
+                                    scores[source[right]]) <= 0)) {
+                        dest[i] = source[left];
+                        left++;
+                    } else {
+                        dest[i] = source[right];
+                        right++;
+                    }
+                }
+            }
+            int[] swap = source;
+            source = dest;
+            dest = swap;
+        }
+
+        if (source != rows) {
+            System.arraycopy(source, 0, rows, 0, rows.length);
+        }
+    }
+
+    /**
+     * A set of perturbed rows (positions in the rows sorted by score), and
+     * its total score.
+     */
+    private static final class Perturbation
+            implements Comparable<Perturbation> {
+
+        private final int[] positions;
+        private final double score;
+
+        Perturbation(final int[] positions, final double score) {
+            this.positions = positions;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(final Perturbation other) {
+            return Double.compare(score, other.score);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+/**
+ * Result of a top-k query: the ids of the nearest neighbors, by decreasing
+ * similarity, and their similarity with the query.
+ *
+ * @author Thibault Debatty
+ */
+public final class Neighbors {
+
+    private final int[] ids;
+    private final double[] similarities;
+
+    Neighbors(final int[] ids, final double[] similarities) {
+        this.ids = ids;
+        this.similarities = similarities;
+    }
+
+    /**
+     * Get the number of neighbors (at most k).
+     *
+     * @return the number of neighbors
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Get the id of the i-th nearest neighbor.
+     *
+     * @param i rank, starting at 0
+     * @return the id
+     */
+    public int getId(final int i) {
+        return ids[i];
+    }
+
+    /**
+     * Get the similarity between the query and the i-th nearest neighbor.
+     *
+     * @param i rank, starting at 0
+     * @return the similarity (estimated, or exact if the neighbors were
+     * re-ranked)
+     */
+    public double getSimilarity(final int i) {
+        return similarities[i];
+    }
+
+    /**
+     * Get the ids of the neighbors, by decreasing similarity.
+     *
+     * @return a copy of the ids
+     */
+    public int[] getIds() {
+        return ids.clone();
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bucket store that keeps the posting lists outside of the Java heap, in
+ * direct ByteBuffers (pages). The size of the index is thus bounded by the
+ * available memory, and not by the heap size, and the ids are never scanned
+ * by the garbage collector.
+ *
+ * Each posting list is a chain of blocks. A block contains the address of
+ * the next block (long), its capacity (int) and the ids. Appending to a full
+ * block allocates a new block of twice the capacity (up to 1024 ids). The
+ * pages are allocated sequentially, and never released individually:
+ * compact() rewrites all posting lists as a single block of exactly the
+ * required size, in new pages.
+ *
+ * Only the address of the first and last block, and the size of each
+ * posting list are kept on heap (24 bytes per slot).
+ *
+ * Direct buffers are limited by -XX:MaxDirectMemorySize, which defaults to
+ * the maximum heap size: the JVM should be started with a larger limit
+ * (e.g. -XX:MaxDirectMemorySize=64g), otherwise allocating a page throws an
+ * OutOfMemoryError when the store reaches the heap size.
+ *
+ * When serialized, only the content of the posting lists is written.
+ *
+ * @author Thibault Debatty
+ */
+public class OffHeapBucketStore implements BucketStore {
+
+    /**
+     * Default size of the pages (64MB).
+     */
+    public static final int DEFAULT_PAGE_SIZE = 1 << 26;
+
+    private static final int MIN_BLOCK = 4;
+    private static final int MAX_BLOCK = 1024;
+    private static final int NEXT = 0;
+    private static final int CAPACITY = 8;
+    private static final int HEADER = 12;
+    private static final int INT_BYTES = 4;
+    private static final int PAGE_SHIFT = 32;
+    private static final long OFFSET_MASK = 0xFFFFFFFFL;
+    private static final long NONE = -1;
+
+    private final int slots;
+    private final int page_size;
+
+    private transient List<ByteBuffer> pages;
+    private transient ByteBuffer page;
+    private transient long[] heads;
+    private transient long[] tails;
+    private transient int[] sizes;
+    private transient int[] tail_counts;
+
+    /**
+     * Create an empty store with this number of slots (stages * buckets),
+     * using pages of 64MB.
+     *
+     * @param slots
+     */
+    public OffHeapBucketStore(final int slots) {
+        this(slots, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Create an empty store with this number of slots (stages * buckets),
+     * and pages of this size (in bytes).
+     *
+     * @param slots
+     * @param page_size
+     */
+    public OffHeapBucketStore(final int slots, final int page_size) {
+        if (slots < 0) {
+            throw new IllegalArgumentException("slots must be >= 0");
+        }
+
+        if (page_size < HEADER + MIN_BLOCK * INT_BYTES) {
+            throw new IllegalArgumentException(
+                    "page_size must be >= " + (HEADER + MIN_BLOCK * INT_BYTES));
+        }
+
+        this.slots = slots;
+        this.page_size = page_size;
+        init();
+    }
+
+    @Override
+    public final int getSlots() {
+        return slots;
+    }
+
+    @Override
+    public final void append(final int slot, final int id) {
+        long tail = tails[slot];
+        if (tail == NONE) {
+            tail = allocate(MIN_BLOCK);
+            heads[slot] = tail;
+            tails[slot] = tail;
+            tail_counts[slot] = 0;
+
+        } else {
+            int capacity = buffer(tail).getInt(offset(tail) + CAPACITY);
+            if (tail_counts[slot] == capacity) {
+                long block = allocate(
+                        Math.max(MIN_BLOCK, Math.min(2 * capacity, MAX_BLOCK)));
+                buffer(tail).putLong(offset(tail) + NEXT, block);
+                tail = block;
+                tails[slot] = tail;
+                tail_counts[slot] = 0;
+            }
+        }
+
+        buffer(tail).putInt(
+                offset(tail) + HEADER + tail_counts[slot] * INT_BYTES, id);
+        tail_counts[slot]++;
+        sizes[slot]++;
+    }
+
+    @Override
+    public final int size(final int slot) {
+        return sizes[slot];
+    }
+
+    @Override
+    public final int read(final int slot, final int[] ids, final int offset) {
+        return read(pages, heads[slot], sizes[slot], ids, offset);
+    }
+
+    @Override
+    public final void compact() {
+        int max = 0;
+        for (int size : sizes) {
+            max = Math.max(max, size);
+        }
+
+        List<ByteBuffer> old_pages = pages;
+        long[] old_heads = heads;
+        int[] old_sizes = sizes;
+        int[] ids = new int[max];
+
+        init();
+        for (int slot = 0; slot < slots; slot++) {
+            if (old_sizes[slot] > 0) {
+                read(old_pages, old_heads[slot], old_sizes[slot], ids, 0);
+                write(slot, ids, old_sizes[slot]);
+            }
+        }
+    }
+
+    /**
+     * Get the number of bytes allocated outside of the heap by this store.
+     *
+     * @return the number of bytes
+     */
+    public final long getAllocatedBytes() {
+        long total = 0;
+        for (ByteBuffer buffer : pages) {
+            total += buffer.capacity();
+        }
+        return total;
+    }
+
+    /**
+     * Copy size ids from the chain of blocks starting at this address.
+     */
+    private static int read(
+            final List<ByteBuffer> source, final long head, final int size,
+            final int[] ids, final int offset) {
+        int remaining = size;
+        int position = offset;
+        long block = head;
+        while (remaining > 0) {
+            ByteBuffer buffer = source.get((int) (block >>> PAGE_SHIFT));
+            int start = offset(block);
+            int count = Math.min(
+                    remaining, buffer.getInt(start + CAPACITY));
+            for (int i = 0; i < count; i++) {
+                ids[position] = buffer.getInt(start + HEADER + i * INT_BYTES);
+                position++;
+            }
+            remaining -= count;
+            block = buffer.getLong(start + NEXT);
+        }
+        return size;
+    }
+
+    /**
+     * Store these ids as a single block, for an empty slot.
+     */
+    private void write(final int slot, final int[] ids, final int size) {
+        long block = allocate(size);
+        ByteBuffer buffer = buffer(block);
+        int start = offset(block);
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(start + HEADER + i * INT_BYTES, ids[i]);
+        }
+        heads[slot] = block;
+        tails[slot] = block;
+        sizes[slot] = size;
+        tail_counts[slot] = size;
+    }
+
+    /**
+     * Allocate a block for this number of ids, and return its address.
+     */
+    private long allocate(final int capacity) {
+        int bytes = HEADER + capacity * INT_BYTES;
+        if (page == null || page.remaining() < bytes) {
+            page = ByteBuffer.allocateDirect(Math.max(page_size, bytes))
+                    .order(ByteOrder.nativeOrder());
+            pages.add(page);
+        }
+
+        int start = page.position();
+        page.putLong(start + NEXT, NONE);
+        page.putInt(start + CAPACITY, capacity);
+        page.position(start + bytes);
+        return ((long) (pages.size() - 1) << PAGE_SHIFT) | start;
+    }
+
+    private ByteBuffer buffer(final long block) {
+        return pages.get((int) (block >>> PAGE_SHIFT));
+    }
+
+    private static int offset(final long block) {
+        return (int) (block & OFFSET_MASK);
+    }
+
+    private void init() {
+        pages = new ArrayList<ByteBuffer>();
+        page = null;
+        heads = new long[slots];
+        tails = new long[slots];
+        sizes = new int[slots];
+        tail_counts = new int[slots];
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+    }
+
+    private void writeObject(final ObjectOutputStream out)
+            throws IOException {
+        out.defaultWriteObject();
+        int[] ids = new int[0];
+        for (int slot = 0; slot < slots; slot++) {
+            if (ids.length < sizes[slot]) {
+                ids = new int[sizes[slot]];
+            }
+            int size = read(slot, ids, 0);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeInt(ids[i]);
+            }
+        }
+    }
+
+    private void readObject(final ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        init();
+        int[] ids = new int[0];
+        for (int slot = 0; slot < slots; slot++) {
+            int size = in.readInt();
+            if (ids.length < size) {
+                ids = new int[size];
+            }
+            for (int i = 0; i < size; i++) {
+                ids[i] = in.readInt();
+            }
+            if (size > 0) {
+                write(slot, ids, size);
+            }
+        }
+    }
+}
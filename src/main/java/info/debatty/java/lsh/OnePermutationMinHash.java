@@ -0,0 +1,350 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.io.Serializable;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * One permutation MinHash (OPH) with optimal densification.
+ *
+ * Instead of computing n hash functions for each element of the set (like
+ * MinHash), each element is hashed once: the hash selects one of the n bins
+ * of the signature, and each bin keeps the minimum hash of its elements.
+ * Empty bins are then filled with the value of a non-empty bin, selected by
+ * a random probe sequence that only depends on the index of the empty bin
+ * ("optimal densification", Shrivastava, 2017). Hence computing a signature
+ * of size n requires O(|set| + n) operations instead of O(|set| * n), which
+ * allows to use much larger signatures.
+ *
+ * Like MinHash signatures, the probability that two signatures have the same
+ * value at a given position is the Jaccard index of the two sets. The
+ * signatures can thus be compared with similarity(sig1, sig2) (or
+ * MinHash.similarity), and binned with the hashSignature method of a
+ * LSHMinHash (each stage then uses size / stages values of the signature).
+ *
+ * Once constructed, a OnePermutationMinHash object is never modified: it can
+ * safely be used by multiple threads concurrently to compute signatures.
+ *
+ * @author Thibault Debatty
+ */
+public class OnePermutationMinHash implements Serializable {
+
+    /**
+     * Value of an empty bin (and of all the bins of the signature of an
+     * empty set). Hashes use 30 bits, hence are always smaller.
+     */
+    private static final int EMPTY = Integer.MAX_VALUE;
+    private static final int HASH_SHIFT = 34;
+    private static final int HASH_BITS = 30;
+
+    private static final int MIX_SHIFT = 33;
+    private static final long MIX_C1 = 0xff51afd7ed558ccdL;
+    private static final long MIX_C2 = 0xc4ceb9fe1a85ec53L;
+
+    /**
+     * Signature size (number of bins).
+     */
+    private int n;
+
+    /**
+     * Random keys of the element hash function and of the densification
+     * probe sequences.
+     */
+    private long hash_key;
+    private long densify_key;
+
+    /**
+     * Initializes the hash function to compute signatures of size size.
+     *
+     * @param size the size of resulting signatures (number of bins)
+     */
+    public OnePermutationMinHash(final int size) {
+        this(size, new Random());
+    }
+
+    /**
+     * Initializes the hash function to compute signatures of size size.
+     *
+     * @param size the size of resulting signatures (number of bins)
+     * @param seed random number generator seed. using the same value will
+     * guarantee identical hashes across object instantiations
+     */
+    public OnePermutationMinHash(final int size, final long seed) {
+        this(size, new Random(seed));
+    }
+
+    private OnePermutationMinHash(final int size, final Random r) {
+        if (size <= 0) {
+            throw new IllegalArgumentException(
+                    "Signature size should be positive");
+        }
+
+        this.n = size;
+        this.hash_key = r.nextLong();
+        this.densify_key = r.nextLong();
+    }
+
+    /**
+     * Computes the signature for this set The input set is represented as an
+     * vector of booleans.
+     * For example the array [true, false, true, true, false]
+     * corresponds to the set {0, 2, 3}
+     *
+     * @param vector
+     * @return the signature
+     */
+    public final int[] signature(final boolean[] vector) {
+        return signature(vector, new int[n]);
+    }
+
+    /**
+     * Computes the signature for this set, represented as a vector of
+     * booleans, and writes it in the provided array (which must have the size
+     * of the signature). This method does not allocate any object.
+     *
+     * @param vector
+     * @param sig array in which the signature is written
+     * @return sig
+     */
+    public final int[] signature(final boolean[] vector, final int[] sig) {
+        initSignature(sig);
+        for (int r = 0; r < vector.length; r++) {
+            if (vector[r]) {
+                update(sig, r);
+            }
+        }
+
+        return densify(sig);
+    }
+
+    /**
+     * Computes the signature for this set. For example set = {0, 2, 3}
+     *
+     * @param set
+     * @return the signature
+     */
+    public final int[] signature(final Set<Integer> set) {
+        return signature(set, new int[n]);
+    }
+
+    /**
+     * Computes the signature for this set, and writes it in the provided
+     * array (which must have the size of the signature).
+     *
+     * @param set
+     * @param sig array in which the signature is written
+     * @return sig
+     */
+    public final int[] signature(final Set<Integer> set, final int[] sig) {
+        initSignature(sig);
+        for (final int r : set) {
+            update(sig, r);
+        }
+
+        return densify(sig);
+    }
+
+    /**
+     * Computes the signature for this set, given as an array of element ids.
+     * For example {0, 2, 3}. The ids do not need to be sorted, and duplicates
+     * do not change the signature.
+     *
+     * @param set
+     * @return the signature
+     */
+    public final int[] signature(final int[] set) {
+        return signature(set, new int[n]);
+    }
+
+    /**
+     * Computes the signature for this set, given as an array of element ids,
+     * and writes it in the provided array (which must have the size of the
+     * signature). This method does not allocate any object.
+     *
+     * @param set
+     * @param sig array in which the signature is written
+     * @return sig
+     */
+    public final int[] signature(final int[] set, final int[] sig) {
+        initSignature(sig);
+        for (int j = 0; j < set.length; j++) {
+            update(sig, set[j]);
+        }
+
+        return densify(sig);
+    }
+
+    /**
+     * Computes the signature for the set of element ids produced by this
+     * iterator.
+     *
+     * @param set
+     * @return the signature
+     */
+    public final int[] signature(final IntIterator set) {
+        return signature(set, new int[n]);
+    }
+
+    /**
+     * Computes the signature for the set of element ids produced by this
+     * iterator, and writes it in the provided array (which must have the
+     * size of the signature). This method does not allocate any object.
+     *
+     * @param set
+     * @param sig array in which the signature is written
+     * @return sig
+     */
+    public final int[] signature(final IntIterator set, final int[] sig) {
+        initSignature(sig);
+        while (set.hasNext()) {
+            update(sig, set.next());
+        }
+
+        return densify(sig);
+    }
+
+    /**
+     * Computes an estimation of Jaccard similarity between two sets, using
+     * the signatures of these two sets.
+     *
+     * @param sig1 signature of set1
+     * @param sig2 signature of set2 (produced by the same object)
+     * @return the estimated similarity
+     */
+    public final double similarity(final int[] sig1, final int[] sig2) {
+        if (sig1.length != sig2.length) {
+            throw new IllegalArgumentException(
+                    "Size of signatures should be the same");
+        }
+
+        double sim = 0;
+        for (int i = 0; i < sig1.length; i++) {
+            if (sig1[i] == sig2[i]) {
+                sim += 1;
+            }
+        }
+
+        return sim / sig1.length;
+    }
+
+    /**
+     * Get the size of the signatures produced by this object.
+     *
+     * @return the signature size
+     */
+    public final int getSignatureSize() {
+        return n;
+    }
+
+    private void initSignature(final int[] sig) {
+        if (sig.length != n) {
+            throw new IllegalArgumentException(
+                    "Size of signature array should be the signature size");
+        }
+
+        for (int i = 0; i < n; i++) {
+            sig[i] = EMPTY;
+        }
+    }
+
+    /**
+     * Hash element r, and keep the hash if it is the smallest of its bin.
+     * The bin is given by the high bits of the hash.
+     *
+     * @param sig
+     * @param r
+     */
+    private void update(final int[] sig, final int r) {
+        long h = mix(hash_key + r) >>> HASH_SHIFT;
+        int bin = (int) ((h * n) >>> HASH_BITS);
+        if (h < sig[bin]) {
+            sig[bin] = (int) h;
+        }
+    }
+
+    /**
+     * Fill the empty bins. For empty bin i, the bins given by a probe
+     * sequence that only depends on i are tested until a bin that was not
+     * empty before densification is found, and its value is copied. The
+     * values of densified bins are temporarily stored as -(value + 1), so
+     * they are not used as a source.
+     *
+     * @param sig
+     * @return sig
+     */
+    private int[] densify(final int[] sig) {
+        boolean empty_set = true;
+        for (int i = 0; i < n; i++) {
+            if (sig[i] != EMPTY) {
+                empty_set = false;
+                break;
+            }
+        }
+
+        if (empty_set) {
+            return sig;
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (sig[i] != EMPTY) {
+                continue;
+            }
+
+            long probe_key = densify_key + ((long) i << Integer.SIZE);
+            for (int attempt = 1;; attempt++) {
+                long h = mix(probe_key + attempt) >>> HASH_SHIFT;
+                int source = sig[(int) ((h * n) >>> HASH_BITS)];
+                if (source >= 0 && source != EMPTY) {
+                    sig[i] = -source - 1;
+                    break;
+                }
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (sig[i] < 0) {
+                sig[i] = -sig[i] - 1;
+            }
+        }
+
+        return sig;
+    }
+
+    /**
+     * Finalization step of MurmurHash3 (64 bits). Also used by
+     * WeightedMinHash.
+     *
+     * @param key
+     * @return a well mixed hash of key
+     */
+    static long mix(final long key) {
+        long h = key;
+        h = (h ^ (h >>> MIX_SHIFT)) * MIX_C1;
+        h = (h ^ (h >>> MIX_SHIFT)) * MIX_C2;
+        return h ^ (h >>> MIX_SHIFT);
+    }
+}
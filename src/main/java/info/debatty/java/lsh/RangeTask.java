@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the processing of a range of independent items (vectors to hash,
+ * batches of hyperplanes to orthogonalize...) across the threads of a
+ * ForkJoinPool. Subclasses process a contiguous range of items, so each
+ * leaf task can reuse its own scratch buffers.
+ *
+ * @author Thibault Debatty
+ */
+abstract class RangeTask {
+
+    /**
+     * Number of leaf tasks per thread, to balance the load when some items
+     * are more expensive to process than others.
+     */
+    private static final int TASKS_PER_THREAD = 8;
+
+    /**
+     * Process items from (inclusive) to (exclusive).
+     *
+     * @param from
+     * @param to
+     */
+    abstract void process(int from, int to);
+
+    /**
+     * Process items 0 to count - 1 using parallelism threads.
+     *
+     * @param count
+     * @param parallelism
+     */
+    final void run(final int count, final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be >= 1");
+        }
+
+        if (count == 0) {
+            return;
+        }
+
+        if (parallelism == 1) {
+            process(0, count);
+            return;
+        }
+
+        int threshold = Math.max(1, count / (parallelism * TASKS_PER_THREAD));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new Task(0, count, threshold));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Recursively split the range of items in two halves.
+     */
+    private final class Task extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        Task(final int from, final int to, final int threshold) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                process(from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new Task(from, middle, threshold),
+                    new Task(middle, to, threshold));
+        }
+    }
+}
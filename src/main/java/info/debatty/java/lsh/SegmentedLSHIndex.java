@@ -0,0 +1,1014 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent index of LSH hashes (as produced by LSH.hashSignature, or by
+ * the hash methods of LSHMinHash and LSHSuperBit), stored in a directory.
+ *
+ * Like LSHIndex, each item receives an int id (0, 1, 2, ...) when it is
+ * added. Added items are first kept in memory, and are written to a new
+ * immutable segment file when flush() is called (or when an item is added
+ * while flush_size items are pending). For each stage, a segment contains
+ * the sorted list of non-empty buckets and the posting list of each bucket.
+ * Segments are memory-mapped: opening an index only reads the manifest,
+ * hence a restarted application can query the index without hashing the
+ * items again.
+ *
+ * The manifest lists the segments of the index. It is written to a
+ * temporary file that is atomically renamed (and the directory is synced
+ * after the rename), hence the index stays consistent if the application
+ * crashes (items that were not flushed are lost). When merge_factor
+ * segments exist, the smallest segments are merged by a background thread.
+ * Segments are only merged if the merged segment fits in 2GB (the limit of
+ * a single mapping): large segments are left unmerged.
+ *
+ * A single writer is allowed per directory: the writer holds a lock on the
+ * LOCK file of the directory until the index is closed. If the lock is held
+ * by another process (or by another index of this JVM), the index is opened
+ * read-only: it can be queried (with the segments listed in the manifest
+ * when it was opened), items cannot be added, and the temporary and unused
+ * files of the directory are not deleted.
+ *
+ * Segments use the big-endian format of BinaryFormat:
+ * - header (8 bytes, type SEGMENT)
+ * - stages, buckets, count (number of items), entries (non-empty buckets)
+ * - for each stage, the position of its first entry (stages + 1 ints)
+ * - bucket of each entry, sorted for each stage (entries ints)
+ * - position of the posting list of each entry (entries + 1 ints)
+ * - id of each item (count ints)
+ * - posting lists (count * stages ints)
+ * - hash of each item (count * stages ints), used for merging
+ *
+ * A single segment is limited to 2GB. All methods are thread-safe.
+ *
+ * @author Thibault Debatty
+ */
+public class SegmentedLSHIndex implements Closeable {
+
+    /**
+     * Default number of items kept in memory before a segment is written.
+     */
+    public static final int DEFAULT_FLUSH_SIZE = 1 << 16;
+
+    /**
+     * Default number of segments that triggers a merge.
+     */
+    public static final int DEFAULT_MERGE_FACTOR = 10;
+
+    private static final String MANIFEST = "MANIFEST";
+    private static final String LOCK = "LOCK";
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".lsh";
+    private static final String TEMPORARY = ".tmp";
+
+    /**
+     * A segment is mapped as a single buffer, hence is limited to 2GB.
+     */
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final File directory;
+    private final int stages;
+    private final int buckets;
+    private final int flush_size;
+    private final int merge_factor;
+
+    /**
+     * Maximum size (in bytes) of a merged segment.
+     */
+    private final long max_segment_size;
+
+    /**
+     * Lock on the LOCK file of the directory, or null if the index is
+     * read-only.
+     */
+    private final FileLock lock;
+
+    /**
+     * Only one merge at a time.
+     */
+    private final Object merge_lock = new Object();
+    private final ExecutorService merger;
+
+    private List<Segment> segments;
+    private int next_segment;
+    private boolean merge_scheduled;
+    private IOException merge_error;
+
+    /**
+     * Number of items stored in the segments.
+     */
+    private int stored;
+
+    /**
+     * Items that are not written to a segment yet.
+     */
+    private LSHIndex<Object> pending;
+    private int[] pending_hashes;
+
+    private SegmentedLSHIndex(
+            final File directory, final int stages, final int buckets,
+            final int flush_size, final int merge_factor,
+            final long max_segment_size, final FileLock lock) {
+        this.directory = directory;
+        this.stages = stages;
+        this.buckets = buckets;
+        this.flush_size = flush_size;
+        this.merge_factor = merge_factor;
+        this.max_segment_size = max_segment_size;
+        this.lock = lock;
+        this.segments = new ArrayList<Segment>();
+        this.pending = new LSHIndex<Object>(stages, buckets);
+        this.pending_hashes = new int[stages];
+        this.merger = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(runnable, "lsh-segment-merger");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Open (or create) the index stored in this directory, for hashes
+     * produced by this LSH object.
+     *
+     * @param directory
+     * @param lsh
+     * @return the index
+     * @throws IOException if the index cannot be read or created
+     */
+    public static SegmentedLSHIndex open(
+            final File directory, final LSH lsh) throws IOException {
+        return open(directory, lsh.getStages(), lsh.getBuckets());
+    }
+
+    /**
+     * Open (or create) the index stored in this directory, for hashes of s
+     * stages and b buckets (per stage).
+     *
+     * @param directory
+     * @param stages
+     * @param buckets
+     * @return the index
+     * @throws IOException if the index cannot be read or created
+     */
+    public static SegmentedLSHIndex open(
+            final File directory, final int stages, final int buckets)
+            throws IOException {
+        return open(
+                directory, stages, buckets,
+                DEFAULT_FLUSH_SIZE, DEFAULT_MERGE_FACTOR);
+    }
+
+    /**
+     * Open (or create) the index stored in this directory, for hashes of s
+     * stages and b buckets (per stage).
+     *
+     * @param directory
+     * @param stages
+     * @param buckets
+     * @param flush_size number of items kept in memory before a segment is
+     * written
+     * @param merge_factor number of segments that triggers a merge (>= 2)
+     * @return the index
+     * @throws IOException if the index cannot be read or created
+     */
+    public static SegmentedLSHIndex open(
+            final File directory, final int stages, final int buckets,
+            final int flush_size, final int merge_factor)
+            throws IOException {
+        return open(
+                directory, stages, buckets, flush_size, merge_factor,
+                MAX_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open (or create) the index, with a smaller limit on the size of
+     * merged segments (used for tests).
+     */
+    static SegmentedLSHIndex open(
+            final File directory, final int stages, final int buckets,
+            final int flush_size, final int merge_factor,
+            final long max_segment_size)
+            throws IOException {
+        if (stages < 1) {
+            throw new IllegalArgumentException("stages must be >= 1");
+        }
+
+        if (buckets < 1) {
+            throw new IllegalArgumentException("buckets must be >= 1");
+        }
+
+        if (flush_size < 1) {
+            throw new IllegalArgumentException("flush_size must be >= 1");
+        }
+
+        if (merge_factor < 2) {
+            throw new IllegalArgumentException("merge_factor must be >= 2");
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+
+        FileLock lock = lock(directory);
+        SegmentedLSHIndex index = new SegmentedLSHIndex(
+                directory, stages, buckets, flush_size, merge_factor,
+                max_segment_size, lock);
+        try {
+            File manifest = new File(directory, MANIFEST);
+            if (manifest.exists()) {
+                index.readManifest(manifest);
+            } else if (lock != null) {
+                index.writeManifest(index.segments);
+            } else {
+                throw new IOException(
+                        "Index is locked by another writer, and has no "
+                        + "manifest yet");
+            }
+        } catch (IOException ex) {
+            index.unlock();
+            throw ex;
+        }
+
+        // temporary and unlisted files may belong to the writer that holds
+        // the lock
+        if (lock != null) {
+            index.deleteUnusedFiles();
+        }
+        return index;
+    }
+
+    /**
+     * Try to lock the LOCK file of this directory, and return null if the
+     * lock is held by another process or index.
+     */
+    private static FileLock lock(final File directory) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(
+                new File(directory, LOCK), "rw");
+        FileLock lock = null;
+        try {
+            lock = raf.getChannel().tryLock();
+        } catch (OverlappingFileLockException ex) {
+            // held by another index of this JVM
+            lock = null;
+        } finally {
+            if (lock == null) {
+                raf.close();
+            }
+        }
+        return lock;
+    }
+
+    /**
+     * Add an item to the index.
+     *
+     * @param hash LSH hash of the item (one bucket per stage)
+     * @return the id of this item
+     * @throws IOException if a segment must be written, and cannot be
+     * @throws IllegalStateException if the index is read-only
+     */
+    public final synchronized int add(final int[] hash) throws IOException {
+        checkWritable();
+
+        // flush (and report errors) before modifying the pending items: if
+        // an exception is thrown, the item is not added
+        checkMergeError();
+        if (pending.size() >= flush_size) {
+            flush();
+        }
+
+        int position = pending.add(null, hash);
+        if ((position + 1) * stages > pending_hashes.length) {
+            pending_hashes = Arrays.copyOf(
+                    pending_hashes, 2 * pending_hashes.length);
+        }
+        System.arraycopy(
+                hash, 0, pending_hashes, position * stages, stages);
+
+        return stored + position;
+    }
+
+    /**
+     * Write the pending items to a new segment. Has no effect if the index
+     * is read-only (there are no pending items).
+     *
+     * @throws IOException if the segment or the manifest cannot be written
+     */
+    public final synchronized void flush() throws IOException {
+        checkMergeError();
+        int count = pending.size();
+        if (count == 0) {
+            return;
+        }
+
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = stored + i;
+        }
+
+        Segment segment = writeSegment(
+                next_segment, ids, pending_hashes, count);
+        next_segment++;
+
+        List<Segment> updated = new ArrayList<Segment>(segments);
+        updated.add(segment);
+        stored += count;
+        try {
+            writeManifest(updated);
+        } catch (IOException ex) {
+            stored -= count;
+            segment.file.delete();
+            throw ex;
+        }
+
+        segments = updated;
+        pending = new LSHIndex<Object>(stages, buckets);
+        scheduleMerge();
+    }
+
+    /**
+     * Get the ids of all items that fall in the same bucket as this hash, for
+     * at least one stage (including items that are not flushed yet). Each id
+     * appears only once in the result.
+     *
+     * @param hash LSH hash of the query (one bucket per stage)
+     * @return sorted array of item ids
+     */
+    public final synchronized int[] query(final int[] hash) {
+        int[] local = pending.query(hash);
+
+        int total = local.length;
+        int[][] entries = new int[segments.size()][];
+        for (int s = 0; s < segments.size(); s++) {
+            entries[s] = segments.get(s).find(hash);
+            total += segments.get(s).size(entries[s]);
+        }
+
+        int[] candidates = new int[total];
+        int position = 0;
+        for (int s = 0; s < segments.size(); s++) {
+            position += segments.get(s).read(entries[s], candidates, position);
+        }
+
+        for (int id : local) {
+            candidates[position] = stored + id;
+            position++;
+        }
+
+        return LSHIndex.unique(candidates);
+    }
+
+    /**
+     * Merge all segments (and the pending items) into a single segment.
+     *
+     * @throws IOException if the merged segment cannot be written, or would
+     * be larger than 2GB
+     * @throws IllegalStateException if the index is read-only
+     */
+    public final void forceMerge() throws IOException {
+        checkWritable();
+        synchronized (merge_lock) {
+            List<Segment> inputs;
+            synchronized (this) {
+                flush();
+                inputs = segments;
+            }
+
+            if (inputs.size() > 1) {
+                merge(inputs);
+            }
+        }
+    }
+
+    /**
+     * Write the pending items, wait for the background merge to complete,
+     * and release the lock of the directory. The index should not be
+     * modified after it is closed.
+     *
+     * @throws IOException if the pending items cannot be written, or if the
+     * background merge failed
+     */
+    public final void close() throws IOException {
+        try {
+            flush();
+            merger.shutdown();
+            try {
+                while (!merger.awaitTermination(1, TimeUnit.SECONDS)) {
+                    continue;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                        "Interrupted while waiting for segment merge");
+            }
+
+            synchronized (this) {
+                checkMergeError();
+            }
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Check if the index is read-only, because the directory is locked by
+     * another writer.
+     *
+     * @return true if items cannot be added to this index
+     */
+    public final boolean isReadOnly() {
+        return lock == null;
+    }
+
+    /**
+     * Get the number of items in the index.
+     *
+     * @return the number of items
+     */
+    public final synchronized int size() {
+        return stored + pending.size();
+    }
+
+    /**
+     * Get the number of segments of the index.
+     *
+     * @return the number of segments
+     */
+    public final synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Get the number of stages of the hashes in this index.
+     *
+     * @return the number of stages
+     */
+    public final int getStages() {
+        return stages;
+    }
+
+    /**
+     * Get the number of buckets (per stage) of the hashes in this index.
+     *
+     * @return the number of buckets
+     */
+    public final int getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Start a background merge of the smallest segments, if there are at
+     * least merge_factor segments.
+     */
+    private void scheduleMerge() {
+        if (merge_scheduled
+                || segments.size() < merge_factor
+                || merger.isShutdown()) {
+            return;
+        }
+
+        merge_scheduled = true;
+        merger.execute(new Runnable() {
+            @Override
+            public void run() {
+                mergeSmallest();
+            }
+        });
+    }
+
+    private void mergeSmallest() {
+        synchronized (merge_lock) {
+            try {
+                while (true) {
+                    List<Segment> inputs;
+                    synchronized (this) {
+                        if (segments.size() < merge_factor) {
+                            return;
+                        }
+                        inputs = smallest(segments);
+                    }
+
+                    if (inputs.size() < 2) {
+                        // no segments fit in the size limit
+                        return;
+                    }
+                    merge(inputs);
+                }
+
+            } catch (IOException ex) {
+                synchronized (this) {
+                    merge_error = ex;
+                }
+
+            } finally {
+                synchronized (this) {
+                    merge_scheduled = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Select (at most) the merge_factor smallest segments, such that the
+     * merged segment fits in max_segment_size. The size of the merged
+     * segment is at most the sum of the sizes of the inputs.
+     */
+    private List<Segment> smallest(final List<Segment> candidates) {
+        List<Segment> sorted = new ArrayList<Segment>(candidates);
+        Collections.sort(sorted, new Comparator<Segment>() {
+            @Override
+            public int compare(final Segment s1, final Segment s2) {
+                if (s1.count == s2.count) {
+                    return 0;
+                }
+                if (s1.count < s2.count) {
+                    return -1;
+                }
+                return 1;
+            }
+        });
+        List<Segment> selected = new ArrayList<Segment>();
+        long size = 0;
+        for (Segment segment : sorted) {
+            if (selected.size() == merge_factor
+                    || size + segment.size > max_segment_size) {
+                break;
+            }
+            selected.add(segment);
+            size += segment.size;
+        }
+        return selected;
+    }
+
+    /**
+     * Write these segments as a single segment, and replace them in the
+     * manifest. The new segment is written without holding the lock of the
+     * index, hence queries are not blocked during the merge.
+     */
+    private void merge(final List<Segment> inputs) throws IOException {
+        int count = 0;
+        for (Segment segment : inputs) {
+            count += segment.count;
+        }
+
+        int[] ids = new int[count];
+        int[] hashes = new int[count * stages];
+        int position = 0;
+        for (Segment segment : inputs) {
+            segment.readItems(ids, hashes, position);
+            position += segment.count;
+        }
+
+        int number;
+        synchronized (this) {
+            number = next_segment;
+            next_segment++;
+        }
+        Segment merged = writeSegment(number, ids, hashes, count);
+
+        synchronized (this) {
+            List<Segment> updated = new ArrayList<Segment>(segments);
+            updated.removeAll(inputs);
+            updated.add(merged);
+            try {
+                writeManifest(updated);
+            } catch (IOException ex) {
+                merged.file.delete();
+                throw ex;
+            }
+            segments = updated;
+        }
+
+        // on some systems, a mapped file cannot be deleted: it is then
+        // deleted when the index is opened again
+        for (Segment segment : inputs) {
+            segment.file.delete();
+        }
+    }
+
+    /**
+     * Write a segment with these items, and map it.
+     */
+    private Segment writeSegment(
+            final int number, final int[] ids, final int[] hashes,
+            final int count) throws IOException {
+
+        // for each stage, sort the items by bucket
+        int[] keys = new int[count * stages];
+        int[] offsets = new int[count * stages + 1];
+        int[] postings = new int[count * stages];
+        int[] stage_starts = new int[stages + 1];
+        long[] pairs = new long[count];
+        int entries = 0;
+        for (int stage = 0; stage < stages; stage++) {
+            stage_starts[stage] = entries;
+            for (int i = 0; i < count; i++) {
+                pairs[i] = ((long) hashes[i * stages + stage] << Integer.SIZE)
+                        | i;
+            }
+            Arrays.sort(pairs);
+
+            for (int i = 0; i < count; i++) {
+                int bucket = (int) (pairs[i] >>> Integer.SIZE);
+                if (i == 0 || bucket != keys[entries - 1]) {
+                    keys[entries] = bucket;
+                    offsets[entries] = stage * count + i;
+                    entries++;
+                }
+                postings[stage * count + i] = ids[(int) pairs[i]];
+            }
+        }
+        stage_starts[stages] = entries;
+        offsets[entries] = count * stages;
+
+        long size = Segment.DATA * Segment.INT_SIZE
+                + (long) (stages + 1 + 2 * entries + 1 + count)
+                * Segment.INT_SIZE
+                + 2L * count * stages * Segment.INT_SIZE;
+        if (size > MAX_SEGMENT_SIZE) {
+            throw new IOException("Segment would be larger than 2GB");
+        }
+
+        File file = segmentFile(number);
+        File temporary = new File(directory, file.getName() + TEMPORARY);
+        FileOutputStream stream = new FileOutputStream(temporary);
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(stream));
+            byte[] buffer = BinaryFormat.newBuffer();
+            BinaryFormat.writeHeader(
+                    out, BinaryFormat.TYPE_SEGMENT, BinaryFormat.MODE_FULL);
+            out.writeInt(stages);
+            out.writeInt(buckets);
+            out.writeInt(count);
+            out.writeInt(entries);
+            BinaryFormat.writeInts(
+                    out, stage_starts, 0, stages + 1, buffer);
+            BinaryFormat.writeInts(out, keys, 0, entries, buffer);
+            BinaryFormat.writeInts(out, offsets, 0, entries + 1, buffer);
+            BinaryFormat.writeInts(out, ids, 0, count, buffer);
+            BinaryFormat.writeInts(
+                    out, postings, 0, count * stages, buffer);
+            BinaryFormat.writeInts(out, hashes, 0, count * stages, buffer);
+            out.flush();
+            stream.getFD().sync();
+        } finally {
+            stream.close();
+        }
+
+        rename(temporary, file);
+        return Segment.open(number, file, stages, buckets);
+    }
+
+    /**
+     * Atomically replace the manifest by a manifest listing these segments.
+     */
+    private void writeManifest(final List<Segment> list) throws IOException {
+        File temporary = new File(directory, MANIFEST + TEMPORARY);
+        FileOutputStream stream = new FileOutputStream(temporary);
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(stream));
+            BinaryFormat.writeHeader(
+                    out, BinaryFormat.TYPE_MANIFEST, BinaryFormat.MODE_FULL);
+            out.writeInt(stages);
+            out.writeInt(buckets);
+            out.writeInt(next_segment);
+            out.writeInt(list.size());
+            for (Segment segment : list) {
+                out.writeInt(segment.number);
+            }
+            out.flush();
+            stream.getFD().sync();
+        } finally {
+            stream.close();
+        }
+
+        rename(temporary, new File(directory, MANIFEST));
+    }
+
+    private void readManifest(final File manifest) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new FileInputStream(manifest));
+        try {
+            BinaryFormat.readHeader(in, BinaryFormat.TYPE_MANIFEST);
+            if (in.readInt() != stages || in.readInt() != buckets) {
+                throw new IOException(
+                        "Index has a different number of stages or buckets");
+            }
+
+            next_segment = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int number = in.readInt();
+                Segment segment = Segment.open(
+                        number, segmentFile(number), stages, buckets);
+                segments.add(segment);
+                stored += segment.count;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Delete the segments that are not listed in the manifest (because a
+     * merge was interrupted, or the file could not be deleted), and the
+     * temporary files.
+     */
+    private void deleteUnusedFiles() {
+        Set<String> used = new HashSet<String>();
+        for (Segment segment : segments) {
+            used.add(segment.file.getName());
+        }
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TEMPORARY)
+                    || (name.startsWith(PREFIX) && name.endsWith(SUFFIX)
+                        && !used.contains(name))) {
+                file.delete();
+            }
+        }
+    }
+
+    private File segmentFile(final int number) {
+        return new File(directory, PREFIX + number + SUFFIX);
+    }
+
+    /**
+     * Atomically rename this file, and sync the directory so the rename
+     * survives a crash.
+     */
+    private static void rename(final File source, final File target)
+            throws IOException {
+        Files.move(
+                source.toPath(), target.toPath(),
+                StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(
+                    target.getParentFile().toPath(), StandardOpenOption.READ);
+        } catch (IOException ex) {
+            // directories cannot be opened on some systems (Windows), where
+            // the rename is durable when the move returns
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void checkWritable() {
+        if (lock == null) {
+            throw new IllegalStateException(
+                    "Index is read-only: directory is locked by another "
+                    + "writer");
+        }
+    }
+
+    /**
+     * Release the lock of the directory (if held).
+     */
+    private void unlock() throws IOException {
+        if (lock != null && lock.isValid()) {
+            lock.release();
+            lock.channel().close();
+        }
+    }
+
+    private void checkMergeError() throws IOException {
+        if (merge_error != null) {
+            IOException error = merge_error;
+            merge_error = null;
+            throw new IOException("Background segment merge failed", error);
+        }
+    }
+
+    /**
+     * Immutable memory-mapped segment. The whole file is viewed as an array
+     * of ints.
+     */
+    private static final class Segment {
+
+        static final int INT_SIZE = 4;
+
+        /**
+         * Position (in ints) of the stage starts, after the header and the
+         * parameters.
+         */
+        static final int DATA = 6;
+
+        private final int number;
+        private final File file;
+        private final long size;
+        private final IntBuffer data;
+        private final int stages;
+        private final int count;
+        private final int keys;
+        private final int offsets;
+        private final int ids;
+        private final int hashes;
+
+        private Segment(
+                final int number, final File file, final IntBuffer data,
+                final int stages, final int count, final int entries) {
+            this.number = number;
+            this.file = file;
+            this.size = file.length();
+            this.data = data;
+            this.stages = stages;
+            this.count = count;
+            this.keys = DATA + stages + 1;
+            this.offsets = keys + entries;
+            this.ids = offsets + entries + 1;
+            this.hashes = ids + count + count * stages;
+        }
+
+        static Segment open(
+                final int number, final File file, final int stages,
+                final int buckets) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                if (channel.size() > Integer.MAX_VALUE
+                        || channel.size() < DATA * INT_SIZE) {
+                    throw new IOException("Invalid segment size");
+                }
+
+                ByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                byte[] header = new byte[DATA * INT_SIZE];
+                buffer.get(header);
+                DataInputStream in = new DataInputStream(
+                        new ByteArrayInputStream(header));
+                BinaryFormat.readHeader(in, BinaryFormat.TYPE_SEGMENT);
+                if (in.readInt() != stages || in.readInt() != buckets) {
+                    throw new IOException(
+                            "Segment has a different number of stages or "
+                            + "buckets");
+                }
+
+                int count = in.readInt();
+                int entries = in.readInt();
+                long expected = INT_SIZE * (DATA + stages + 1
+                        + 2L * entries + 1 + count + 2L * count * stages);
+                if (count < 0 || entries < 0
+                        || channel.size() != expected) {
+                    throw new IOException("Segment is truncated");
+                }
+
+                buffer.position(0);
+                return new Segment(
+                        number, file, buffer.asIntBuffer(),
+                        stages, count, entries);
+
+            } finally {
+                // the mapping remains valid after the channel is closed
+                raf.close();
+            }
+        }
+
+        /**
+         * Find the entry of each stage of this hash (or -1 if the bucket is
+         * empty in this segment).
+         */
+        int[] find(final int[] hash) {
+            int[] entries = new int[stages];
+            for (int stage = 0; stage < stages; stage++) {
+                entries[stage] = find(stage, hash[stage]);
+            }
+            return entries;
+        }
+
+        private int find(final int stage, final int bucket) {
+            int low = data.get(DATA + stage);
+            int high = data.get(DATA + stage + 1) - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int value = data.get(keys + middle);
+                if (value < bucket) {
+                    low = middle + 1;
+                } else if (value > bucket) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Get the total size of the posting lists of these entries.
+         */
+        int size(final int[] entries) {
+            int total = 0;
+            for (int entry : entries) {
+                if (entry >= 0) {
+                    total += data.get(offsets + entry + 1)
+                            - data.get(offsets + entry);
+                }
+            }
+            return total;
+        }
+
+        /**
+         * Copy the posting lists of these entries, and return the number of
+         * ids that were copied.
+         */
+        int read(final int[] entries, final int[] dest, final int position) {
+            int copied = 0;
+            for (int entry : entries) {
+                if (entry < 0) {
+                    continue;
+                }
+                int start = data.get(offsets + entry);
+                int end = data.get(offsets + entry + 1);
+                for (int i = start; i < end; i++) {
+                    dest[position + copied] = data.get(ids + count + i);
+                    copied++;
+                }
+            }
+            return copied;
+        }
+
+        /**
+         * Copy the ids and hashes of all items, starting at this item
+         * position.
+         */
+        void readItems(
+                final int[] dest_ids, final int[] dest_hashes,
+                final int position) {
+            IntBuffer view = data.duplicate();
+            view.position(ids);
+            view.get(dest_ids, position, count);
+            view.position(hashes);
+            view.get(dest_hashes, position * stages, count * stages);
+        }
+    }
+}
@@ -24,6 +24,9 @@
 
 package info.debatty.java.lsh;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Random;
 
@@ -39,7 +42,16 @@ import java.util.Random;
  *
  * Supported input types:
  * - double[]
- * - others to come...
+ * - int[]
+ * - float[] and byte[] (int8 quantized vectors), using a single precision
+ *   copy of the hyperplanes
+ *
+ * The dot products of signatures use the SIMD instructions of the CPU if
+ * the JDK Vector API is available (see Kernels).
+ *
+ * Once constructed, the hyperplanes of a SuperBit object are never modified:
+ * it can safely be used by multiple threads concurrently to compute
+ * signatures.
  *
  * @author Thibault Debatty
  */
@@ -47,26 +59,84 @@ public class SuperBit implements Serializable {
 
     private double[][] hyperplanes;
     private static final int DEFAULT_CODE_LENGTH = 10000;
+    private static final int WORD_BITS = 64;
+    private static final int WORD_SHIFT = 6;
+
+    /**
+     * Number of coefficients of a tile of vectors processed together by the
+     * batch methods (128KB of doubles, which should fit in L2 cache).
+     */
+    private static final int TILE_SIZE = 16384;
+    private static final int REGISTER_BLOCK = 4;
+    private static final int MAX_TILE_VECTORS = 64;
+
+    /**
+     * Number of multiply-adds (K * N * d) above which the batches of
+     * hyperplanes are orthogonalized in parallel.
+     */
+    private static final long PARALLEL_THRESHOLD = 1L << 24;
+
+    /**
+     * Maximum number of coefficients of a chunk of the column-major copy of
+     * the hyperplanes (128MB of doubles).
+     */
+    private static final int COLUMN_CHUNK_SIZE = 1 << 24;
+
+    /**
+     * Row-major copy of the hyperplanes in a single contiguous array, built
+     * on first use by the batch methods.
+     */
+    private transient volatile double[] flat_hyperplanes;
+
+    /**
+     * Row-major single precision copy of the hyperplanes, built on first use
+     * by the float[] and byte[] methods.
+     */
+    private transient volatile float[] float_hyperplanes;
+
+    /**
+     * Column-major copy of the hyperplanes, built on first use by the sparse
+     * methods, and per-thread dot product accumulators. The columns are
+     * stored by chunks of (at most) COLUMN_CHUNK_SIZE coefficients, so the
+     * copy is not limited to 2^31 coefficients: coefficient j of hyperplane
+     * i is at index (j % per_chunk) * K + i of chunk j / per_chunk, where
+     * per_chunk = chunk length / K.
+     */
+    private transient volatile double[][] column_hyperplanes;
+    private transient volatile ThreadLocal<double[]> sparse_buffers;
+
+    /**
+     * Parameters used to generate the hyperplanes (used to save the model in
+     * the compact SEED binary format).
+     */
+    private int superbit_depth;
+    private int superbit_count;
+    private long seed;
+    private boolean seeded;
 
     /**
      * Initialize SuperBit algorithm.
      * Super-Bit depth n must be [1 .. d] and number of Super-Bit l in [1 ..
      * The resulting code length k = n * l
-     * The K vectors are orthogonalized in L batches of N vectors
+     * The K vectors are orthogonalized in L batches of N vectors. If
+     * K * N * d > 2^24, the batches are orthogonalized in parallel, using
+     * one thread per available processor.
      *
      * @param d data space dimension
      * @param n Super-Bit depth [1 .. d]
      * @param l number of Super-Bit [1 ..
      */
     public SuperBit(final int d, final int n, final int l) {
-        this(d, n, l, new Random());
+        this(d, n, l, new Random(), defaultParallelism(d, n, l));
     }
 
     /**
      * Initialize SuperBit algorithm.
      * Super-Bit depth n must be [1 .. d] and number of Super-Bit l in [1 ..
      * The resulting code length k = n * l
-     * The K vectors are orthogonalized in L batches of N vectors
+     * The K vectors are orthogonalized in L batches of N vectors. If
+     * K * N * d > 2^24, the batches are orthogonalized in parallel, using
+     * one thread per available processor.
      *
      * @param d data space dimension
      * @param n Super-Bit depth [1 .. d]
@@ -74,10 +144,32 @@ public class SuperBit implements Serializable {
      * @param seed to use for the random number generator
      */
     public SuperBit(final int d, final int n, final int l, final long seed) {
-        this(d, n, l, new Random(seed));
+        this(d, n, l, seed, defaultParallelism(d, n, l));
     }
 
-    private SuperBit(final int d, final int n, final int l, final Random rand) {
+    /**
+     * Initialize SuperBit algorithm, and orthogonalize the L batches of N
+     * vectors using this number of threads. The hyperplanes only depend on
+     * the seed, and not on the number of threads.
+     *
+     * @param d data space dimension
+     * @param n Super-Bit depth [1 .. d]
+     * @param l number of Super-Bit [1 ..
+     * @param seed to use for the random number generator
+     * @param parallelism number of threads used to orthogonalize the
+     * hyperplanes (1 to run in the calling thread)
+     */
+    public SuperBit(
+            final int d, final int n, final int l, final long seed,
+            final int parallelism) {
+        this(d, n, l, new Random(seed), parallelism);
+        this.seed = seed;
+        this.seeded = true;
+    }
+
+    private SuperBit(
+            final int d, final int n, final int l, final Random rand,
+            final int parallelism) {
         if (d <= 0) {
             throw new IllegalArgumentException("Dimension d must be >= 1");
         }
@@ -92,6 +184,9 @@ public class SuperBit implements Serializable {
                     "Number of Super-Bit L must be >= 1");
         }
 
+        this.superbit_depth = n;
+        this.superbit_count = l;
+
         // Input: Data space dimension d, Super-Bit depth 1 <= N <= d,
         // number of Super-Bit L >= 1,
         // resulting code length K = N * L
@@ -100,58 +195,83 @@ public class SuperBit implements Serializable {
         // from the normal distribution
         // N (0, 1), with each column normalized to unit length.
         // Denote H = [v1, v2, ..., vK].
+        // The random values are always drawn sequentially, so the
+        // hyperplanes only depend on the seed (and not on the number of
+        // threads used to orthogonalize them).
         int code_length = n * l;
 
-        double[][] v = new double[code_length][d];
-
+        double[][] w = new double[code_length][d];
         for (int i = 0; i < code_length; i++) {
-            double[] vector = new double[d];
+            double[] vector = w[i];
             for (int j = 0; j < d; j++) {
                 vector[j] = rand.nextGaussian();
             }
 
             normalize(vector);
-            v[i] = vector;
         }
 
+        orthogonalize(w, n, l, parallelism);
 
-        // for i = 0 to L - 1 do
-        //    for j = 1 to N do
-        //       w_{iN+j} = v_{iN+j}
-        //       for k = 1 to j - 1 do
-        //          w_{iN+j} = w_{iN+j} - w_{iN+k} w^T_{iN+k} v_{iN+j}
-        //       end for
-        //       wiN+j = wiN+j / | wiN+j |
-        //     end for
-        //   end for
-        // Output: H˜ = [w1, w2, ..., wK]
+        this.hyperplanes = w;
+    }
 
-        double[][] w = new double[code_length][d];
-        for (int i = 0; i <= l - 1; i++) {
-            for (int j = 1; j <= n; j++) {
-                java.lang.System.arraycopy(
-                        v[i * n + j - 1],
-                        0,
-                        w[i * n + j - 1],
-                        0,
-                        d);
-
-                for (int k = 1; k <= (j - 1); k++) {
-                    w[i * n + j - 1] = sub(
-                            w[i * n + j - 1],
-                            product(
-                                    dotProduct(
-                                            w[i * n + k - 1],
-                                            v[ i * n + j - 1]),
-                                    w[i * n + k - 1]));
-                }
+    /**
+     * Number of threads used to orthogonalize the hyperplanes when it is not
+     * specified: one per available processor if K * N * d is large enough.
+     */
+    private static int defaultParallelism(
+            final int d, final int n, final int l) {
+        if ((long) n * l * n * d > PARALLEL_THRESHOLD) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return 1;
+    }
 
-                normalize(w[i * n + j - 1]);
+    /**
+     * Orthogonalize the L batches of N vectors, in place, using modified
+     * Gram-Schmidt. The batches are independent, and are processed in
+     * parallel using parallelism threads. The result does not depend on the
+     * number of threads.
+     *
+     * for i = 0 to L - 1 do
+     *    for j = 1 to N do
+     *       for k = 1 to j - 1 do
+     *          w_{iN+j} = w_{iN+j} - w_{iN+k} w^T_{iN+k} w_{iN+j}
+     *       end for
+     *       w_{iN+j} = w_{iN+j} / | w_{iN+j} |
+     *    end for
+     * end for
+     *
+     * Unlike classical Gram-Schmidt (which projects the original vector
+     * v_{iN+j}), each projection is removed from the partially
+     * orthogonalized vector, which keeps the batch orthogonal to working
+     * precision, and no temporary vector is allocated.
+     */
+    static void orthogonalize(
+            final double[][] w,
+            final int n,
+            final int l,
+            final int parallelism) {
 
-            }
-        }
+        new RangeTask() {
+            @Override
+            void process(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    for (int j = i * n; j < (i + 1) * n; j++) {
+                        double[] vector = w[j];
+                        for (int k = i * n; k < j; k++) {
+                            double[] base = w[k];
+                            double projection = dotProduct(base, vector);
+                            for (int c = 0; c < vector.length; c++) {
+                                vector[c] -= projection * base[c];
+                            }
+                        }
 
-        this.hyperplanes = w;
+                        normalize(vector);
+                    }
+                }
+            }
+        }.run(l, parallelism);
     }
 
     /**
@@ -179,13 +299,561 @@ public class SuperBit implements Serializable {
      * @return
      */
     public final boolean[] signature(final double[] vector) {
+        return signature(vector, new boolean[this.hyperplanes.length]);
+    }
+
+    /**
+     * Compute the signature of this vector, and write it in the provided
+     * array (which must have the size of the code length). This method does
+     * not allocate any object.
+     *
+     * @param vector
+     * @param sig array in which the signature is written
+     * @return sig
+     */
+    public final boolean[] signature(
+            final double[] vector, final boolean[] sig) {
+        if (sig.length != this.hyperplanes.length) {
+            throw new IllegalArgumentException(
+                    "Size of signature array should be the code length");
+        }
+
+        Kernels kernels = Kernels.get();
+        int d = getDimension();
+        for (int i = 0; i < this.hyperplanes.length; i++) {
+            sig[i] = kernels.dot(this.hyperplanes[i], 0, vector, 0, d) >= 0;
+        }
+        return sig;
+    }
+
+    /**
+     * Compute the signature of this vector, packed in an array of longs
+     * (64 bits per long): bit i of the signature is stored in bit (i % 64)
+     * of word (i / 64). The packed signature is 8 times smaller than the
+     * boolean[] signature.
+     *
+     * @param vector
+     * @return the packed signature
+     */
+    public final long[] packedSignature(final double[] vector) {
+        return signature(vector, new long[words(this.hyperplanes.length)]);
+    }
+
+    /**
+     * Compute the packed signature of this vector, and write it in the
+     * provided array (which must contain (code length + 63) / 64 longs).
+     * This method does not allocate any object.
+     *
+     * @param vector
+     * @param sig array in which the packed signature is written
+     * @return sig
+     */
+    public final long[] signature(final double[] vector, final long[] sig) {
+        checkPackedSize(sig);
+
+        Kernels kernels = Kernels.get();
+        int d = getDimension();
+        for (int i = 0; i < this.hyperplanes.length; i++) {
+            if (kernels.dot(this.hyperplanes[i], 0, vector, 0, d) >= 0) {
+                sig[i >>> WORD_SHIFT] |= 1L << i;
+            }
+        }
+        return sig;
+    }
+
+    /**
+     * Compute the dot products between this vector and all hyperplanes (the
+     * signature is the sign of the dot products). Used by multi-probe LSH.
+     *
+     * @param vector
+     * @param dots array in which the K dot products are written
+     */
+    final void dotProducts(final double[] vector, final double[] dots) {
+        Kernels kernels = Kernels.get();
+        int d = getDimension();
+        for (int i = 0; i < this.hyperplanes.length; i++) {
+            dots[i] = kernels.dot(this.hyperplanes[i], 0, vector, 0, d);
+        }
+    }
+
+    /**
+     * Compute the packed signature of this vector of integers, and write it
+     * in the provided array (which must contain (code length + 63) / 64
+     * longs). The signature is identical to the signature of the same vector
+     * converted to double[], but no conversion copy is made.
+     *
+     * @param vector
+     * @param sig array in which the packed signature is written
+     * @return sig
+     */
+    public final long[] signature(final int[] vector, final long[] sig) {
+        checkDimension(vector.length);
+        checkPackedSize(sig);
+
+        for (int i = 0; i < this.hyperplanes.length; i++) {
+            double[] hyperplane = this.hyperplanes[i];
+            double agg = 0;
+            for (int j = 0; j < vector.length; j++) {
+                agg += hyperplane[j] * vector[j];
+            }
+
+            if (agg >= 0) {
+                sig[i >>> WORD_SHIFT] |= 1L << i;
+            }
+        }
+        return sig;
+    }
+
+    /**
+     * Compute the signature of this single precision vector.
+     *
+     * @see #signature(float[], long[])
+     * @param vector
+     * @return the signature
+     */
+    public final boolean[] signature(final float[] vector) {
+        long[] packed = packedSignature(vector);
         boolean[] sig = new boolean[this.hyperplanes.length];
+        for (int i = 0; i < sig.length; i++) {
+            sig[i] = (packed[i >>> WORD_SHIFT] & (1L << i)) != 0;
+        }
+        return sig;
+    }
+
+    /**
+     * Compute the packed signature of this single precision vector.
+     *
+     * @see #signature(float[], long[])
+     * @param vector
+     * @return the packed signature
+     */
+    public final long[] packedSignature(final float[] vector) {
+        return signature(vector, new long[words(this.hyperplanes.length)]);
+    }
+
+    /**
+     * Compute the packed signature of this single precision vector, and
+     * write it in the provided array (which must contain
+     * (code length + 63) / 64 longs).
+     *
+     * The dot products are computed with a single precision copy of the
+     * hyperplanes (built on first call), which halves the memory traffic.
+     * The products are summed in double precision. Hence bit i of the
+     * signature is identical to the bit computed with double[] input, except
+     * if the dot product with hyperplane i is (nearly) 0:
+     * |h_i . v| &lt; 2^-24 * sum_j |h_ij * v_j| (roughly 6E-8 of the sum of
+     * the magnitudes of the products).
+     *
+     * @param vector
+     * @param sig array in which the packed signature is written
+     * @return sig
+     */
+    public final long[] signature(final float[] vector, final long[] sig) {
+        checkDimension(vector.length);
+        checkPackedSize(sig);
+
+        float[] h = floatHyperplanes();
+        int d = vector.length;
+        for (int i = 0; i < this.hyperplanes.length; i++) {
+            int offset = i * d;
+            double agg = 0;
+            for (int j = 0; j < d; j++) {
+                agg += (double) h[offset + j] * vector[j];
+            }
+
+            if (agg >= 0) {
+                sig[i >>> WORD_SHIFT] |= 1L << i;
+            }
+        }
+        return sig;
+    }
+
+    /**
+     * Compute the packed signature of this int8 quantized vector.
+     *
+     * @see #signature(byte[], long[])
+     * @param vector
+     * @return the packed signature
+     */
+    public final long[] packedSignature(final byte[] vector) {
+        return signature(vector, new long[words(this.hyperplanes.length)]);
+    }
+
+    /**
+     * Compute the packed signature of this int8 quantized vector, and write
+     * it in the provided array (which must contain (code length + 63) / 64
+     * longs).
+     *
+     * The vector must be quantized symmetrically (v_j = scale * q_j, with a
+     * positive scale and no zero-point): as the signature only depends on
+     * the sign of the dot products, the scale does not need to be provided.
+     * The dot products are computed with the single precision hyperplanes,
+     * with the same tolerance as signature(float[], long[]).
+     *
+     * @param vector
+     * @param sig array in which the packed signature is written
+     * @return sig
+     */
+    public final long[] signature(final byte[] vector, final long[] sig) {
+        checkDimension(vector.length);
+        checkPackedSize(sig);
+
+        float[] h = floatHyperplanes();
+        int d = vector.length;
         for (int i = 0; i < this.hyperplanes.length; i++) {
-            sig[i] = (dotProduct(this.hyperplanes[i], vector) >= 0);
+            int offset = i * d;
+            double agg = 0;
+            for (int j = 0; j < d; j++) {
+                agg += (double) h[offset + j] * vector[j];
+            }
+
+            if (agg >= 0) {
+                sig[i >>> WORD_SHIFT] |= 1L << i;
+            }
+        }
+        return sig;
+    }
+
+    /**
+     * Compute the signature of this sparse vector.
+     *
+     * @see #signature(int[], double[], long[])
+     * @param indices indices of the non-zero coordinates
+     * @param values values of the non-zero coordinates
+     * @return the signature
+     */
+    public final boolean[] signature(
+            final int[] indices, final double[] values) {
+        long[] packed = packedSignature(indices, values);
+        boolean[] sig = new boolean[this.hyperplanes.length];
+        for (int i = 0; i < sig.length; i++) {
+            sig[i] = (packed[i >>> WORD_SHIFT] & (1L << i)) != 0;
+        }
+        return sig;
+    }
+
+    /**
+     * Compute the packed signature of this sparse vector.
+     *
+     * @see #signature(int[], double[], long[])
+     * @param indices indices of the non-zero coordinates
+     * @param values values of the non-zero coordinates
+     * @return the packed signature
+     */
+    public final long[] packedSignature(
+            final int[] indices, final double[] values) {
+        return signature(
+                indices, values, new long[words(this.hyperplanes.length)]);
+    }
+
+    /**
+     * Compute the packed signature of this sparse vector, and write it in
+     * the provided array (which must contain (code length + 63) / 64 longs).
+     *
+     * Only the non-zero coordinates are used, with a column-major copy of
+     * the hyperplanes (built on first call): the cost is O(K * nnz) instead
+     * of O(K * d). The copy has the same size as the hyperplanes (K * d
+     * doubles), hence the first call to a sparse method doubles the memory
+     * used by this SuperBit. If the indices are sorted, the signature is
+     * identical to the signature of the dense vector computed with the
+     * scalar kernels. Apart from a per-thread buffer allocated at the first
+     * call, this method does not allocate any object.
+     *
+     * @param indices indices of the non-zero coordinates, in [0, d[
+     * @param values values of the non-zero coordinates
+     * @param sig array in which the packed signature is written
+     * @return sig
+     */
+    public final long[] signature(
+            final int[] indices, final double[] values, final long[] sig) {
+        if (indices.length != values.length) {
+            throw new IllegalArgumentException(
+                    "indices and values should have the same size");
+        }
+        checkPackedSize(sig);
+
+        double[][] columns = columnHyperplanes();
+        double[] agg = sparseBuffer();
+        int k = this.hyperplanes.length;
+        int d = getDimension();
+        int per_chunk = columns[0].length / k;
+        for (int i = 0; i < k; i++) {
+            agg[i] = 0;
+        }
+
+        for (int j = 0; j < indices.length; j++) {
+            int index = indices[j];
+            if (index < 0 || index >= d) {
+                throw new IllegalArgumentException(
+                        "Indices should be in [0, d[");
+            }
+
+            double value = values[j];
+            double[] chunk = columns[index / per_chunk];
+            int offset = (index % per_chunk) * k;
+            for (int i = 0; i < k; i++) {
+                agg[i] += chunk[offset + i] * value;
+            }
+        }
+
+        for (int i = 0; i < k; i++) {
+            if (agg[i] >= 0) {
+                sig[i >>> WORD_SHIFT] |= 1L << i;
+            }
         }
         return sig;
     }
 
+    /**
+     * Compute the packed signatures of a batch of vectors.
+     *
+     * @see #signatures(double[], int, long[])
+     * @param vectors
+     * @return the packed signature of each vector
+     */
+    public final long[][] signatures(final double[][] vectors) {
+        int d = getDimension();
+        int words = words(this.hyperplanes.length);
+        int tile = tileVectors(d);
+
+        double[] block = new double[tile * d];
+        long[] sigs = new long[tile * words];
+        long[][] result = new long[vectors.length][];
+
+        for (int first = 0; first < vectors.length; first += tile) {
+            int count = Math.min(tile, vectors.length - first);
+            for (int v = 0; v < count; v++) {
+                checkDimension(vectors[first + v]);
+                System.arraycopy(vectors[first + v], 0, block, v * d, d);
+            }
+
+            signatures(block, 0, count, sigs);
+            for (int v = 0; v < count; v++) {
+                result[first + v] = new long[words];
+                System.arraycopy(sigs, v * words, result[first + v], 0, words);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Compute the packed signatures of a batch of count vectors, stored in
+     * row-major order in a single array (vector i occupies block[i * d] to
+     * block[i * d + d - 1]). The signature of vector i is written in
+     * sigs[i * w] to sigs[i * w + w - 1], where w = (code length + 63) / 64.
+     *
+     * The vectors are processed by tiles that fit in cache, and each
+     * hyperplane is multiplied with 4 vectors at a time, using a contiguous
+     * copy of the hyperplanes (built on first call). The result is identical
+     * to calling signature(vector, long[]) for each vector.
+     *
+     * @param block
+     * @param count number of vectors in the block
+     * @param sigs array in which the packed signatures are written
+     * @return sigs
+     */
+    public final long[] signatures(
+            final double[] block, final int count, final long[] sigs) {
+        int d = getDimension();
+        int words = words(this.hyperplanes.length);
+        if (block.length < count * d) {
+            throw new IllegalArgumentException(
+                    "Block should contain count * d values");
+        }
+
+        if (sigs.length < count * words) {
+            throw new IllegalArgumentException(
+                    "Signatures array should contain count * (K + 63) / 64 "
+                    + "values");
+        }
+
+        int tile = tileVectors(d);
+        for (int first = 0; first < count; first += tile) {
+            signatures(
+                    block, first, Math.min(tile, count - first), sigs);
+        }
+        return sigs;
+    }
+
+    /**
+     * Compute the signatures of count vectors (that fit in cache), starting
+     * with vector first.
+     */
+    private void signatures(
+            final double[] block,
+            final int first,
+            final int count,
+            final long[] sigs) {
+
+        double[] h = flatHyperplanes();
+        int d = getDimension();
+        int k = this.hyperplanes.length;
+        int words = words(k);
+
+        for (int w = first * words; w < (first + count) * words; w++) {
+            sigs[w] = 0;
+        }
+
+        Kernels kernels = Kernels.get();
+        double[] dots = new double[REGISTER_BLOCK];
+
+        for (int i = 0; i < k; i++) {
+            int h_offset = i * d;
+            int word = i >>> WORD_SHIFT;
+            long bit = 1L << i;
+
+            int v = first;
+            for (; v + REGISTER_BLOCK <= first + count; v += REGISTER_BLOCK) {
+                // dot4 produces the same results as dot, hence the
+                // signatures are identical to single vector signatures
+                kernels.dot4(h, h_offset, block, v * d, d, dots);
+                for (int r = 0; r < REGISTER_BLOCK; r++) {
+                    if (dots[r] >= 0) {
+                        sigs[(v + r) * words + word] |= bit;
+                    }
+                }
+            }
+
+            for (; v < first + count; v++) {
+                if (kernels.dot(h, h_offset, block, v * d, d) >= 0) {
+                    sigs[v * words + word] |= bit;
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of vectors of dimension d in a tile.
+     */
+    private static int tileVectors(final int d) {
+        int tile = TILE_SIZE / d;
+        tile = tile - tile % REGISTER_BLOCK;
+        return Math.max(REGISTER_BLOCK, Math.min(MAX_TILE_VECTORS, tile));
+    }
+
+    private double[] flatHyperplanes() {
+        double[] flat = flat_hyperplanes;
+        if (flat == null) {
+            int d = getDimension();
+            flat = new double[flatSize()];
+            for (int i = 0; i < this.hyperplanes.length; i++) {
+                System.arraycopy(this.hyperplanes[i], 0, flat, i * d, d);
+            }
+            flat_hyperplanes = flat;
+        }
+        return flat;
+    }
+
+    private double[][] columnHyperplanes() {
+        double[][] columns = column_hyperplanes;
+        if (columns == null) {
+            int d = getDimension();
+            int k = this.hyperplanes.length;
+            int per_chunk = Math.max(1, Math.min(d, COLUMN_CHUNK_SIZE / k));
+            columns = new double[(d + per_chunk - 1) / per_chunk][];
+            for (int c = 0; c < columns.length; c++) {
+                int count = Math.min(per_chunk, d - c * per_chunk);
+                // all chunks have the same length (per_chunk * K), except
+                // the last one
+                double[] chunk = new double[count * k];
+                for (int i = 0; i < k; i++) {
+                    double[] hyperplane = this.hyperplanes[i];
+                    for (int j = 0; j < count; j++) {
+                        chunk[j * k + i] = hyperplane[c * per_chunk + j];
+                    }
+                }
+                columns[c] = chunk;
+            }
+            column_hyperplanes = columns;
+        }
+        return columns;
+    }
+
+    /**
+     * Size of the row-major copies of the hyperplanes (used by the batch,
+     * float[] and byte[] methods), which are limited to 2^31 - 1
+     * coefficients.
+     */
+    private int flatSize() {
+        long size = (long) this.hyperplanes.length * getDimension();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "K * d must be < 2^31 for the batch, float[] and "
+                    + "byte[] methods");
+        }
+        return (int) size;
+    }
+
+    private double[] sparseBuffer() {
+        ThreadLocal<double[]> local = sparse_buffers;
+        if (local == null) {
+            local = new ThreadLocal<double[]>() {
+                @Override
+                protected double[] initialValue() {
+                    return new double[hyperplanes.length];
+                }
+            };
+            sparse_buffers = local;
+        }
+        return local.get();
+    }
+
+    /**
+     * Number of vectors of dimension d processed together by the batch
+     * methods.
+     */
+    final int getTileSize() {
+        return tileVectors(getDimension());
+    }
+
+    /**
+     * Get the dimension of the vectors.
+     */
+    final int getDimension() {
+        return this.hyperplanes[0].length;
+    }
+
+    private float[] floatHyperplanes() {
+        float[] flat = float_hyperplanes;
+        if (flat == null) {
+            int d = getDimension();
+            flat = new float[flatSize()];
+            for (int i = 0; i < this.hyperplanes.length; i++) {
+                for (int j = 0; j < d; j++) {
+                    flat[i * d + j] = (float) this.hyperplanes[i][j];
+                }
+            }
+            float_hyperplanes = flat;
+        }
+        return flat;
+    }
+
+    private void checkDimension(final double[] vector) {
+        checkDimension(vector.length);
+    }
+
+    private void checkDimension(final int length) {
+        if (length != getDimension()) {
+            throw new IllegalArgumentException(
+                    "Size of vector should be the dimension d");
+        }
+    }
+
+    /**
+     * Check the size of this packed signature array, and clear it.
+     */
+    private void checkPackedSize(final long[] sig) {
+        if (sig.length != words(this.hyperplanes.length)) {
+            throw new IllegalArgumentException(
+                    "Size of signature array should be (K + 63) / 64");
+        }
+
+        for (int w = 0; w < sig.length; w++) {
+            sig[w] = 0;
+        }
+    }
+
     /**
      * Compute the similarity between two signature, which is also an
      * estimation of the cosine similarity between the two vectors.
@@ -208,6 +876,34 @@ public class SuperBit implements Serializable {
         return Math.cos((1 - agg) * Math.PI);
     }
 
+    /**
+     * Compute the similarity between two packed signatures, which is also an
+     * estimation of the cosine similarity between the two vectors.
+     *
+     * @param sig1
+     * @param sig2
+     * @return estimated cosine similarity
+     */
+    public final double similarity(final long[] sig1, final long[] sig2) {
+        if (sig1.length != sig2.length) {
+            throw new IllegalArgumentException(
+                    "Size of signatures should be the same");
+        }
+
+        double agg = this.hyperplanes.length - hammingDistance(sig1, sig2);
+        agg = agg / this.hyperplanes.length;
+
+        return Math.cos((1 - agg) * Math.PI);
+    }
+
+    /**
+     * Get the code length (the size of the signatures).
+     * @return the code length
+     */
+    public final int getCodeLength() {
+        return this.hyperplanes.length;
+    }
+
     /**
      * Get the hyperplanes coefficients used to compute signatures.
      * @return
@@ -216,8 +912,131 @@ public class SuperBit implements Serializable {
         return this.hyperplanes;
     }
 
+    /**
+     * Write this SuperBit in binary format: dimension d, code length K, and
+     * the K hyperplanes (K * d doubles, in row-major order).
+     *
+     * @param out
+     * @throws IOException if an I/O error occurs
+     */
+    public final void write(final DataOutput out) throws IOException {
+        BinaryFormat.writeHeader(
+                out, BinaryFormat.TYPE_SUPERBIT, BinaryFormat.MODE_FULL);
+        out.writeInt(getDimension());
+        out.writeInt(this.hyperplanes.length);
+
+        byte[] buffer = BinaryFormat.newBuffer();
+        for (double[] hyperplane : this.hyperplanes) {
+            BinaryFormat.writeDoubles(out, hyperplane, buffer);
+        }
+    }
+
+    /**
+     * Write this SuperBit in compact binary format: only the dimension, the
+     * Super-Bit depth and number, and the seed are stored. The hyperplanes
+     * are regenerated from the seed when the model is read.
+     *
+     * @param out
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if this SuperBit was not created with a
+     * seed
+     */
+    public final void writeSeed(final DataOutput out) throws IOException {
+        if (!isSeeded()) {
+            throw new IllegalStateException(
+                    "This SuperBit was not created with a seed");
+        }
+
+        BinaryFormat.writeHeader(
+                out, BinaryFormat.TYPE_SUPERBIT, BinaryFormat.MODE_SEED);
+        out.writeInt(getDimension());
+        out.writeInt(superbit_depth);
+        out.writeInt(superbit_count);
+        out.writeLong(seed);
+    }
+
+    /**
+     * Check if this SuperBit was created with a seed (and can thus be saved
+     * with writeSeed).
+     */
+    final boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * Read a SuperBit written by write(out) or writeSeed(out).
+     *
+     * @param in
+     * @return the SuperBit
+     * @throws IOException if an I/O error occurs or the data is not a
+     * SuperBit binary model
+     */
+    public static SuperBit read(final DataInput in) throws IOException {
+        byte mode = BinaryFormat.readHeader(in, BinaryFormat.TYPE_SUPERBIT);
+        int d = in.readInt();
+
+        if (mode == BinaryFormat.MODE_SEED) {
+            int n = in.readInt();
+            int l = in.readInt();
+            return new SuperBit(d, n, l, in.readLong());
+        }
+
+        int code_length = in.readInt();
+        if (d <= 0 || code_length <= 0) {
+            throw new IOException("Invalid SuperBit parameters");
+        }
+
+        double[][] hyperplanes = new double[code_length][d];
+        byte[] buffer = BinaryFormat.newBuffer();
+        for (double[] hyperplane : hyperplanes) {
+            BinaryFormat.readDoubles(in, hyperplane, buffer);
+        }
+
+        SuperBit sb = new SuperBit();
+        sb.hyperplanes = hyperplanes;
+        return sb;
+    }
+
     /* ---------------------- STATIC ---------------------- */
 
+    /**
+     * Computes the number of bits that differ between two packed signatures.
+     *
+     * @param sig1
+     * @param sig2
+     * @return the Hamming distance between the signatures
+     */
+    public static int hammingDistance(final long[] sig1, final long[] sig2) {
+        int distance = 0;
+        for (int w = 0; w < sig1.length; w++) {
+            distance += Long.bitCount(sig1[w] ^ sig2[w]);
+        }
+        return distance;
+    }
+
+    /**
+     * Pack a boolean[] signature in an array of longs (64 bits per long).
+     *
+     * @param sig
+     * @return the packed signature
+     */
+    public static long[] pack(final boolean[] sig) {
+        long[] packed = new long[words(sig.length)];
+        for (int i = 0; i < sig.length; i++) {
+            if (sig[i]) {
+                packed[i >>> WORD_SHIFT] |= 1L << i;
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Number of longs required to store a packed signature of this length.
+     */
+    static int words(final int code_length) {
+        return (code_length + WORD_BITS - 1) / WORD_BITS;
+    }
+
     /**
      * Computes the cosine similarity, computed as v1 dot v2 / (|v1| * |v2|).
      * Cosine similarity of two vectors is the cosine of the angle between them.
@@ -232,22 +1051,6 @@ public class SuperBit implements Serializable {
         return dotProduct(v1, v2) / (norm(v1) * norm(v2));
     }
 
-    private static double[] product(final double x, final double[] v) {
-        double[] r = new double[v.length];
-        for (int i = 0; i < v.length; i++) {
-            r[i] = x * v[i];
-        }
-        return r;
-    }
-
-    private static double[] sub(final double[] a, final double[] b) {
-        double[] r = new double[a.length];
-        for (int i = 0; i < a.length; i++) {
-            r[i] = a[i] - b[i];
-        }
-        return r;
-    }
-
     private static void normalize(final double[] vector) {
         double norm = norm(vector);
         for (int i = 0; i < vector.length; i++) {
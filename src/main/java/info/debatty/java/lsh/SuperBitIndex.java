@@ -0,0 +1,175 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+/**
+ * Index of vectors that answers top-k (nearest neighbors) queries.
+ *
+ * The vectors are binned with LSHSuperBit, and their packed SuperBit
+ * signature is kept in a flat long array. A query retrieves the candidates
+ * (the vectors that share a bucket with the query for at least one stage),
+ * ranks them by estimated cosine similarity (computed from the Hamming
+ * distance between signatures, like SuperBit.similarity) with a bounded
+ * heap, and returns the k best. Optionally, the best candidates are
+ * re-ranked by exact cosine similarity, using the original vectors provided
+ * by a VectorStore.
+ *
+ * This class is not thread-safe.
+ *
+ * @author Thibault Debatty
+ * @param <K> type of the keys associated to the vectors
+ */
+public class SuperBitIndex<K> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final LSHSuperBit lsh;
+    private final LSHIndex<K> index;
+    private final int code_length;
+    private final int words;
+
+    /**
+     * Packed signatures of all vectors, stored as a flat array of size
+     * count * words.
+     */
+    private long[] signatures;
+
+    /**
+     * Reused by each query to deduplicate the candidates.
+     */
+    private final Candidates collector = new Candidates();
+
+    /**
+     * Create an empty index of vectors binned with this LSHSuperBit.
+     *
+     * @param lsh
+     */
+    public SuperBitIndex(final LSHSuperBit lsh) {
+        this.lsh = lsh;
+        this.index = new LSHIndex<K>(lsh);
+        this.code_length = lsh.getCodeLength();
+        this.words = SuperBit.words(code_length);
+        this.signatures = new long[INITIAL_CAPACITY * words];
+    }
+
+    /**
+     * Add a vector to the index.
+     *
+     * @param key key associated to this vector
+     * @param vector
+     * @return the id of this vector
+     */
+    public final int add(final K key, final double[] vector) {
+        long[] sig = lsh.signature(vector, new long[words]);
+        int id = index.add(key, lsh.hashSignature(sig, code_length));
+        if ((id + 1) * words > signatures.length) {
+            long[] copy = new long[2 * signatures.length];
+            System.arraycopy(signatures, 0, copy, 0, signatures.length);
+            signatures = copy;
+        }
+
+        System.arraycopy(sig, 0, signatures, id * words, words);
+        return id;
+    }
+
+    /**
+     * Get the (at most) k vectors that are the most similar to this vector,
+     * among the candidates that share a bucket with it, by decreasing
+     * estimated cosine similarity.
+     *
+     * @param vector the query
+     * @param k
+     * @return the k nearest neighbors
+     */
+    public final Neighbors query(final double[] vector, final int k) {
+        return rank(lsh.signature(vector, new long[words]), k).drain();
+    }
+
+    /**
+     * Get the (at most) k vectors that are the most similar to this vector:
+     * the best candidates (by estimated similarity) are re-ranked by exact
+     * cosine similarity, using the vectors provided by the store.
+     *
+     * @param vector the query
+     * @param k
+     * @param store provides the original vectors
+     * @param candidates number of candidates to re-rank (>= k)
+     * @return the k nearest neighbors, with exact similarities
+     */
+    public final Neighbors query(
+            final double[] vector, final int k,
+            final VectorStore<K, double[]> store, final int candidates) {
+        if (candidates < k) {
+            throw new IllegalArgumentException("candidates must be >= k");
+        }
+
+        Neighbors estimated = rank(
+                lsh.signature(vector, new long[words]), candidates).drain();
+        TopK top = new TopK(k);
+        for (int i = 0; i < estimated.size(); i++) {
+            int id = estimated.getId(i);
+            top.offer(id, SuperBit.cosineSimilarity(
+                    vector, store.get(index.getKey(id))));
+        }
+        return top.drain();
+    }
+
+    /**
+     * Get the key associated to this vector.
+     *
+     * @param id id of the vector
+     * @return the key
+     */
+    public final K getKey(final int id) {
+        return index.getKey(id);
+    }
+
+    /**
+     * Get the number of vectors in the index.
+     *
+     * @return the number of vectors
+     */
+    public final int size() {
+        return index.size();
+    }
+
+    /**
+     * Rank the candidates by estimated similarity with this signature.
+     */
+    private TopK rank(final long[] sig, final int k) {
+        TopK top = new TopK(k);
+        index.query(lsh.hashSignature(sig, code_length), collector);
+        for (int c = 0; c < collector.size(); c++) {
+            int id = collector.getId(c);
+            int offset = id * words;
+            int distance = 0;
+            for (int w = 0; w < words; w++) {
+                distance += Long.bitCount(signatures[offset + w] ^ sig[w]);
+            }
+            top.offer(id, Math.cos(Math.PI * distance / code_length));
+        }
+        return top;
+    }
+}
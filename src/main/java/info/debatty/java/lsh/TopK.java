@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+/**
+ * Bounded heap that keeps the k items with the highest score, using
+ * primitive arrays (no boxing, no allocation after construction). Ties are
+ * broken in favor of the smallest id, so results are deterministic. A NaN
+ * score (like the cosine similarity of an all-zero vector) ranks below all
+ * other scores.
+ *
+ * @author Thibault Debatty
+ */
+final class TopK {
+
+    private final int[] ids;
+    private final double[] scores;
+    private int size;
+
+    /**
+     * Create an empty heap for the k best items.
+     *
+     * @param k
+     */
+    TopK(final int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be >= 1");
+        }
+
+        this.ids = new int[k];
+        this.scores = new double[k];
+    }
+
+    /**
+     * Offer an item: it is kept if the heap is not full, or if it is better
+     * than the worst item of the heap (which is then removed).
+     *
+     * @param id
+     * @param score
+     */
+    void offer(final int id, final double score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            size++;
+            siftUp(size - 1);
+            return;
+        }
+
+        if (worse(id, score, ids[0], scores[0])) {
+            return;
+        }
+
+        ids[0] = id;
+        scores[0] = score;
+        siftDown(0);
+    }
+
+    /**
+     * Get the number of items in the heap.
+     *
+     * @return the number of items
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Empty the heap, and return its items by decreasing score.
+     *
+     * @return the neighbors
+     */
+    Neighbors drain() {
+        int count = size;
+        int[] sorted_ids = new int[count];
+        double[] sorted_scores = new double[count];
+        for (int i = count - 1; i >= 0; i--) {
+            sorted_ids[i] = ids[0];
+            sorted_scores[i] = scores[0];
+            size--;
+            ids[0] = ids[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return new Neighbors(sorted_ids, sorted_scores);
+    }
+
+    /**
+     * Check if item 1 ranks below item 2. NaN is the worst score (NaN
+     * compares false with all values, which would break the heap order).
+     */
+    private static boolean worse(
+            final int id1, final double score1,
+            final int id2, final double score2) {
+        boolean nan1 = Double.isNaN(score1);
+        boolean nan2 = Double.isNaN(score2);
+        if (nan1 != nan2) {
+            return nan1;
+        }
+        if (!nan1 && score1 != score2) {
+            return score1 < score2;
+        }
+        return id1 > id2;
+    }
+
+    /**
+     * Check if the item at position i ranks below the item at position j.
+     */
+    private boolean worse(final int i, final int j) {
+        return worse(ids[i], scores[i], ids[j], scores[j]);
+    }
+
+    private void siftUp(final int position) {
+        int child = position;
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            if (!worse(child, parent)) {
+                return;
+            }
+            swap(child, parent);
+            child = parent;
+        }
+    }
+
+    private void siftDown(final int position) {
+        int parent = position;
+        while (true) {
+            int left = 2 * parent + 1;
+            if (left >= size) {
+                return;
+            }
+
+            int worst = left;
+            int right = left + 1;
+            if (right < size && worse(right, left)) {
+                worst = right;
+            }
+
+            if (!worse(worst, parent)) {
+                return;
+            }
+            swap(parent, worst);
+            parent = worst;
+        }
+    }
+
+    private void swap(final int i, final int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * Weighted MinHash, using Improved Consistent Weighted Sampling (ICWS, Ioffe,
+ * 2010).
+ *
+ * Input vectors are sparse vectors of positive weights (for example TF-IDF
+ * weights), given as an array of element ids and an array of weights. The
+ * probability that two signatures have the same value at a given position is
+ * the weighted Jaccard index of the two vectors:
+ * sum(min(w1, w2)) / sum(max(w1, w2)).
+ *
+ * The random variables of each hash function (r, c ~ Gamma(2, 1) and
+ * beta ~ Uniform(0, 1)) are drawn once for each element of the dictionary
+ * when the object is created, and stored in tables, hence computing a
+ * signature only requires a logarithm and a floor per element and per hash
+ * function. The tables use 12 * size * dict_size bytes.
+ *
+ * The signatures are int[], so they can be compared with similarity(sig1,
+ * sig2) (or MinHash.similarity), and binned with the hashSignature method of
+ * a LSHMinHash.
+ *
+ * Once constructed, a WeightedMinHash object is never modified: it can
+ * safely be used by multiple threads concurrently to compute signatures.
+ *
+ * @author Thibault Debatty
+ */
+public class WeightedMinHash implements Serializable {
+
+    /**
+     * Signature size.
+     */
+    private final int n;
+
+    /**
+     * Dictionary size.
+     */
+    private final int dict_size;
+
+    /**
+     * Random variables of hash function i for element k, at index
+     * k * n + i: r, ln(c) and beta.
+     */
+    private final float[] r;
+    private final float[] log_c;
+    private final float[] beta;
+
+    /**
+     * Per-thread buffer with the smallest value of ln(a) for each hash
+     * function.
+     */
+    private transient volatile ThreadLocal<double[]> minimums;
+
+    /**
+     * Initializes hash functions to compute weighted MinHash signatures for
+     * vectors of a dictionary of dict_size elements.
+     *
+     * @param size the number of hash functions (and the size of resulting
+     * signatures)
+     * @param dict_size
+     */
+    public WeightedMinHash(final int size, final int dict_size) {
+        this(size, dict_size, new Random());
+    }
+
+    /**
+     * Initializes hash functions to compute weighted MinHash signatures for
+     * vectors of a dictionary of dict_size elements.
+     *
+     * @param size the number of hash functions (and the size of resulting
+     * signatures)
+     * @param dict_size
+     * @param seed random number generator seed. using the same value will
+     * guarantee identical hashes across object instantiations
+     */
+    public WeightedMinHash(
+            final int size, final int dict_size, final long seed) {
+        this(size, dict_size, new Random(seed));
+    }
+
+    private WeightedMinHash(
+            final int size, final int dict_size, final Random rand) {
+
+        if (size <= 0) {
+            throw new IllegalArgumentException(
+                    "Signature size should be positive");
+        }
+
+        if (dict_size <= 0) {
+            throw new IllegalArgumentException(
+                    "Dictionary size should be positive");
+        }
+
+        if ((long) size * dict_size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "size * dict_size is too large");
+        }
+
+        this.n = size;
+        this.dict_size = dict_size;
+
+        int count = size * dict_size;
+        r = new float[count];
+        log_c = new float[count];
+        beta = new float[count];
+        for (int j = 0; j < count; j++) {
+            r[j] = (float) gamma(rand);
+            log_c[j] = (float) Math.log(gamma(rand));
+            beta[j] = rand.nextFloat();
+        }
+    }
+
+    /**
+     * Computes the signature of this weighted vector. The ids should be
+     * distinct, and elements with a weight smaller or equal to 0 are
+     * ignored.
+     *
+     * @param ids ids of the elements of the vector
+     * @param weights weights of the elements
+     * @return the signature
+     */
+    public final int[] signature(final int[] ids, final float[] weights) {
+        return signature(ids, weights, new int[n]);
+    }
+
+    /**
+     * Computes the signature of this weighted vector, and writes it in the
+     * provided array (which must have the size of the signature). Apart
+     * from a per-thread buffer allocated at the first call, this method
+     * does not allocate any object.
+     *
+     * @param ids ids of the elements of the vector
+     * @param weights weights of the elements
+     * @param sig array in which the signature is written
+     * @return sig
+     */
+    public final int[] signature(
+            final int[] ids, final float[] weights, final int[] sig) {
+
+        if (ids.length != weights.length) {
+            throw new IllegalArgumentException(
+                    "ids and weights should have the same size");
+        }
+
+        if (sig.length != n) {
+            throw new IllegalArgumentException(
+                    "Size of signature array should be the signature size");
+        }
+
+        double[] min = minimumsBuffer();
+        for (int i = 0; i < n; i++) {
+            sig[i] = Integer.MAX_VALUE;
+            min[i] = Double.POSITIVE_INFINITY;
+        }
+
+        for (int j = 0; j < ids.length; j++) {
+            int k = ids[j];
+            if (k < 0 || k >= dict_size) {
+                throw new IllegalArgumentException(
+                        "Element ids should be in [0, dict_size[");
+            }
+
+            if (!(weights[j] > 0)) {
+                continue;
+            }
+
+            // For each hash function i:
+            // t = floor(ln(w) / r + beta)
+            // ln(a) = ln(c) - r * (t - beta) - r
+            // and the sample (k, t) with the smallest a is kept
+            double log_w = Math.log(weights[j]);
+            int offset = k * n;
+            for (int i = 0; i < n; i++) {
+                double r_i = r[offset + i];
+                double beta_i = beta[offset + i];
+                double t = Math.floor(log_w / r_i + beta_i);
+                double log_a = log_c[offset + i] - r_i * (t - beta_i + 1);
+                if (log_a < min[i]) {
+                    min[i] = log_a;
+                    sig[i] = sample(k, (long) t);
+                }
+            }
+        }
+
+        return sig;
+    }
+
+    /**
+     * Computes an estimation of the weighted Jaccard index between two
+     * vectors, using their signatures.
+     *
+     * @param sig1 signature of vector1
+     * @param sig2 signature of vector2 (produced by the same object)
+     * @return the estimated similarity
+     */
+    public final double similarity(final int[] sig1, final int[] sig2) {
+        if (sig1.length != sig2.length) {
+            throw new IllegalArgumentException(
+                    "Size of signatures should be the same");
+        }
+
+        double sim = 0;
+        for (int i = 0; i < sig1.length; i++) {
+            if (sig1[i] == sig2[i]) {
+                sim += 1;
+            }
+        }
+
+        return sim / sig1.length;
+    }
+
+    /**
+     * Get the size of the signatures produced by this object.
+     *
+     * @return the signature size
+     */
+    public final int getSignatureSize() {
+        return n;
+    }
+
+    /**
+     * Get the dictionary size.
+     *
+     * @return the dictionary size
+     */
+    public final int getDictionarySize() {
+        return dict_size;
+    }
+
+    /**
+     * Hash the sample (k, t) to a signature value.
+     */
+    private static int sample(final int k, final long t) {
+        long h = OnePermutationMinHash.mix(
+                ((long) k << Integer.SIZE) ^ OnePermutationMinHash.mix(t));
+        return (int) (h >>> Integer.SIZE);
+    }
+
+    /**
+     * Gamma(2, 1) random variable, as the sum of two exponential random
+     * variables: -ln(u1 * u2).
+     */
+    private static double gamma(final Random rand) {
+        // 1 - nextDouble() is in ]0, 1]
+        return -Math.log((1 - rand.nextDouble()) * (1 - rand.nextDouble()));
+    }
+
+    private double[] minimumsBuffer() {
+        ThreadLocal<double[]> local = minimums;
+        if (local == null) {
+            local = new ThreadLocal<double[]>() {
+                @Override
+                protected double[] initialValue() {
+                    return new double[n];
+                }
+            };
+            minimums = local;
+        }
+        return local.get();
+    }
+}
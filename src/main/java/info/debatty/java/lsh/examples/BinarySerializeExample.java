@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh.examples;
+
+import info.debatty.java.lsh.LSHSuperBit;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class BinarySerializeExample {
+
+    /**
+     * @param args the command line arguments
+     * @throws java.io.IOException
+     */
+    public static void main(String[] args) throws IOException {
+
+        // Create a random vector
+        int n = 1024;
+        double[] vector = new double[n];
+        Random rand = new Random();
+        for (int j = 0; j < n; j++) {
+            vector[j] = rand.nextGaussian();
+        }
+
+        // Create and configure LSH
+        int stages = 4;
+        int buckets = 100;
+        LSHSuperBit lsh = new LSHSuperBit(stages, buckets, n, 123456);
+        println(lsh.hash(vector));
+
+        // Save the complete model (all hyperplanes)...
+        File file = Files.createTempFile("lshobject", ".bin").toFile();
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        lsh.write(out);
+        out.close();
+        System.out.println(
+                "LSH object saved to " + file.getAbsolutePath()
+                + " (" + file.length() + " bytes)");
+
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        println(LSHSuperBit.read(in).hash(vector));
+        in.close();
+
+        // ... or only the parameters and the seed (the hyperplanes are
+        // regenerated when the model is read)
+        out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        lsh.writeSeed(out);
+        out.close();
+        System.out.println(
+                "LSH object saved to " + file.getAbsolutePath()
+                + " (" + file.length() + " bytes)");
+
+        in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        println(LSHSuperBit.read(in).hash(vector));
+        in.close();
+    }
+
+    static void println(int[] array) {
+        System.out.print("[");
+        for (int v : array) {
+            System.out.print("" + v + " ");
+        }
+        System.out.println("]");
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh.examples;
+
+import info.debatty.java.lsh.CandidatePairListener;
+import info.debatty.java.lsh.LSHIndex;
+import info.debatty.java.lsh.LSHMinHash;
+import info.debatty.java.lsh.MinHash;
+import java.util.Random;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class LSHIndexExample {
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        // Number of sets
+        int count = 10000;
+
+        // Size of dictionary
+        int n = 100;
+
+        // LSH parameters
+        int stages = 5;
+        int buckets = 100;
+
+        // Let's generate some random sets
+        final boolean[][] vectors = new boolean[count][n];
+        Random r = new Random();
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < n; j++) {
+                vectors[i][j] = (r.nextInt(10) == 0);
+            }
+        }
+
+        // Bin all sets in the index, instead of comparing their hashes
+        // pairwise
+        LSHMinHash lsh = new LSHMinHash(stages, buckets, n);
+        LSHIndex<String> index = new LSHIndex<String>(lsh);
+        for (int i = 0; i < count; i++) {
+            index.add("set" + i, lsh.hash(vectors[i]));
+        }
+
+        // Sets that are similar to the first one
+        int[] candidates = index.query(lsh.hash(vectors[0]));
+        System.out.println(
+                "Candidates for " + index.getKey(0) + ": " + candidates.length);
+
+        // Stream all candidate pairs, and keep only the ones that are
+        // really similar
+        final int[] similar = new int[1];
+        index.allCandidatePairs(new CandidatePairListener() {
+            public void candidatePair(final int id1, final int id2) {
+                if (MinHash.jaccardIndex(vectors[id1], vectors[id2]) > 0.5) {
+                    similar[0]++;
+                }
+            }
+        });
+        System.out.println("Pairs with Jaccard index > 0.5: " + similar[0]);
+    }
+}
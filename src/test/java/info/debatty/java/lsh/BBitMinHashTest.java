@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class BBitMinHashTest {
+
+    /**
+     * Test that the b-bit signatures estimate the Jaccard index, for all
+     * supported numbers of bits.
+     */
+    @Test
+    public void testSimilarity() {
+        // 600 common elements out of 1000: J = 0.6
+        int[] set1 = new int[800];
+        int[] set2 = new int[800];
+        for (int i = 0; i < 600; i++) {
+            set1[i] = i;
+            set2[i] = i;
+        }
+        for (int i = 600; i < 800; i++) {
+            set1[i] = 1000 + i;
+            set2[i] = 2000 + i;
+        }
+
+        MinHash mh = new MinHash(2000, 3000, 123456);
+        int[] full1 = mh.signature(set1);
+        int[] full2 = mh.signature(set2);
+
+        for (int bits = 1; bits <= 8; bits <<= 1) {
+            BBitMinHash bbit = new BBitMinHash(bits, mh);
+            long[] sig1 = bbit.signature(set1);
+            long[] sig2 = bbit.signature(set2);
+            assertEquals((2000 * bits + 63) / 64, sig1.length);
+
+            assertEquals(0.6, bbit.similarity(sig1, sig2), 0.05);
+            assertEquals(
+                    bbit.similarity(sig1, sig2),
+                    bbit.similarity(sig1, 800, sig2, 800),
+                    1e-4);
+
+            // Count the equal values directly on the full signatures
+            int matches = 0;
+            int mask = (1 << bits) - 1;
+            for (int i = 0; i < full1.length; i++) {
+                if ((full1[i] & mask) == (full2[i] & mask)) {
+                    matches++;
+                }
+            }
+            assertEquals(matches, bbit.matches(sig1, sig2));
+            assertEquals(1.0, bbit.similarity(sig1, sig1), 0.0);
+        }
+    }
+
+    /**
+     * Test the packing of a signature whose size is not a multiple of the
+     * number of values per long.
+     */
+    @Test
+    public void testCompress() {
+        BBitMinHash bbit = new BBitMinHash(4, 20, 100, 1);
+        int[] sig = new int[20];
+        for (int i = 0; i < sig.length; i++) {
+            sig[i] = 16 * i + (i % 16);
+        }
+
+        long[] packed = bbit.compress(sig);
+        assertEquals(2, packed.length);
+        for (int i = 0; i < sig.length; i++) {
+            long value = (packed[i / 16] >>> ((i % 16) * 4)) & 15;
+            assertEquals(i % 16, value);
+        }
+        assertEquals(0, packed[1] >>> 16);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class BucketStoreTest {
+
+    /**
+     * Test of append and read methods, of class OffHeapBucketStore.
+     */
+    @Test
+    public void testOffHeap() throws Exception {
+        System.out.println("offHeap");
+
+        int slots = 50;
+        HeapBucketStore heap = new HeapBucketStore(slots);
+        // small pages, to use several pages and chains of blocks
+        OffHeapBucketStore off_heap = new OffHeapBucketStore(slots, 4096);
+
+        Random rand = new Random(1234);
+        for (int id = 0; id < 20000; id++) {
+            int slot = rand.nextInt(slots);
+            if (slot == 7) {
+                continue;
+            }
+            heap.append(slot, id);
+            off_heap.append(slot, id);
+        }
+        assertTrue(off_heap.getAllocatedBytes() > 4096);
+        assertSameContent(heap, off_heap);
+
+        heap.compact();
+        off_heap.compact();
+        assertSameContent(heap, off_heap);
+
+        // append after compaction
+        for (int id = 20000; id < 21000; id++) {
+            heap.append(id % slots, id);
+            off_heap.append(id % slots, id);
+        }
+        assertSameContent(heap, off_heap);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(off_heap);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        assertSameContent(heap, (BucketStore) in.readObject());
+    }
+
+    /**
+     * Test of query method, of class LSHIndex, with an OffHeapBucketStore.
+     */
+    @Test
+    public void testIndex() {
+        System.out.println("index");
+
+        int count = 500;
+        int n = 100;
+        Random rand = new Random(5678);
+        LSHMinHash lsh = new LSHMinHash(4, 10, n, 123456);
+        LSHIndex<Integer> heap = new LSHIndex<Integer>(lsh);
+        LSHIndex<Integer> off_heap = new LSHIndex<Integer>(
+                lsh, new OffHeapBucketStore(40, 1024));
+
+        int[][] hashes = new int[count][];
+        for (int i = 0; i < count; i++) {
+            boolean[] vector = new boolean[n];
+            for (int j = 0; j < n; j++) {
+                vector[j] = rand.nextBoolean();
+            }
+            hashes[i] = lsh.hash(vector);
+            heap.add(i, hashes[i]);
+            off_heap.add(i, hashes[i]);
+        }
+        off_heap.compact();
+
+        for (int i = 0; i < count; i++) {
+            assertArrayEquals(
+                    heap.query(hashes[i]), off_heap.query(hashes[i]));
+        }
+    }
+
+    private static void assertSameContent(
+            final BucketStore expected, final BucketStore actual) {
+        assertEquals(expected.getSlots(), actual.getSlots());
+        for (int slot = 0; slot < expected.getSlots(); slot++) {
+            assertEquals(expected.size(slot), actual.size(slot));
+            int[] expected_ids = new int[expected.size(slot) + 1];
+            int[] actual_ids = new int[actual.size(slot) + 1];
+            assertEquals(
+                    expected.size(slot), expected.read(slot, expected_ids, 1));
+            assertEquals(
+                    actual.size(slot), actual.read(slot, actual_ids, 1));
+            assertArrayEquals(expected_ids, actual_ids);
+        }
+    }
+}
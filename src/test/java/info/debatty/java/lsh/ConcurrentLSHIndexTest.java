@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class ConcurrentLSHIndexTest {
+
+    /**
+     * Test of add and query methods, of class ConcurrentLSHIndex, with
+     * concurrent writers and readers.
+     */
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        System.out.println("concurrentAdd");
+
+        final int threads = 8;
+        final int per_thread = 2000;
+        final int stages = 4;
+        final int buckets = 50;
+        final int[][] hashes = new int[threads * per_thread][stages];
+        Random rand = new Random(1234);
+        for (int[] hash : hashes) {
+            for (int s = 0; s < stages; s++) {
+                hash[s] = rand.nextInt(buckets);
+            }
+        }
+
+        final ConcurrentLSHIndex<Integer> index =
+                new ConcurrentLSHIndex<Integer>(stages, buckets);
+        final AtomicInteger errors = new AtomicInteger();
+        Thread[] workers = new Thread[2 * threads];
+        for (int t = 0; t < threads; t++) {
+            final int first = t * per_thread;
+            workers[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = first; i < first + per_thread; i++) {
+                        int id = index.add(i, hashes[i]);
+                        // the item is visible as soon as add returns
+                        if (Arrays.binarySearch(
+                                index.query(hashes[i]), id) < 0) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            };
+
+            workers[threads + t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = first; i < first + per_thread; i++) {
+                        // returned items collide with the query
+                        for (int id : index.query(hashes[i])) {
+                            if (!collide(index.getHash(id), hashes[i])) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+            };
+        }
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(0, errors.get());
+        assertEquals(threads * per_thread, index.size());
+
+        // same candidates (by key) as a sequential index
+        LSHIndex<Integer> expected = new LSHIndex<Integer>(stages, buckets);
+        for (int i = 0; i < hashes.length; i++) {
+            expected.add(i, hashes[i]);
+        }
+
+        for (int i = 0; i < hashes.length; i += 100) {
+            int[] ids = index.query(hashes[i]);
+            int[] keys = new int[ids.length];
+            for (int j = 0; j < ids.length; j++) {
+                keys[j] = index.getKey(ids[j]);
+                assertArrayEquals(hashes[keys[j]], index.getHash(ids[j]));
+            }
+            Arrays.sort(keys);
+            assertArrayEquals(expected.query(hashes[i]), keys);
+        }
+    }
+
+    private static boolean collide(final int[] hash1, final int[] hash2) {
+        for (int s = 0; s < hash1.length; s++) {
+            if (hash1[s] == hash2[s]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class FastSuperBitTest {
+
+    /**
+     * Test that the signatures estimate the cosine similarity, and that all
+     * input types produce the same signature.
+     */
+    @Test
+    public void testSimilarity() {
+        int d = 100;
+        FastSuperBit fsb = new FastSuperBit(d, 4000, 123456);
+        Random rand = new Random(1234);
+
+        for (int t = 0; t < 10; t++) {
+            double[] v1 = new double[d];
+            double[] v2 = new double[d];
+            for (int j = 0; j < d; j++) {
+                v1[j] = rand.nextGaussian();
+                v2[j] = v1[j] + rand.nextGaussian();
+            }
+
+            assertEquals(
+                    SuperBit.cosineSimilarity(v1, v2),
+                    fsb.similarity(
+                            fsb.packedSignature(v1),
+                            fsb.packedSignature(v2)),
+                    0.1);
+        }
+
+        int[] ints = new int[d];
+        double[] doubles = new double[d];
+        float[] floats = new float[d];
+        byte[] bytes = new byte[d];
+        int[] indices = new int[d / 2];
+        double[] values = new double[d / 2];
+        for (int j = 0; j < d; j++) {
+            bytes[j] = (byte) (rand.nextInt(256) - 128);
+            ints[j] = bytes[j];
+            floats[j] = bytes[j];
+            if (j % 2 == 0) {
+                doubles[j] = bytes[j];
+                indices[j / 2] = j;
+                values[j / 2] = bytes[j];
+            }
+        }
+
+        long[] expected = fsb.packedSignature(doubles);
+        long[] sig = new long[expected.length];
+        assertArrayEquals(expected, fsb.signature(indices, values, sig));
+        assertArrayEquals(
+                SuperBit.pack(fsb.signature(doubles)), expected);
+
+        expected = fsb.signature(ints, new long[expected.length]);
+        assertArrayEquals(expected, fsb.signature(floats, sig));
+        assertArrayEquals(expected, fsb.signature(bytes, sig));
+    }
+
+    /**
+     * Test LSHSuperBit with FastSuperBit, and the binary format.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testLSHSuperBit() throws IOException {
+        int d = 50;
+        LSHSuperBit lsh = new LSHSuperBit(5, 100, d, 123456, true);
+        Random rand = new Random(1234);
+        double[][] vectors = new double[30][d];
+        for (double[] vector : vectors) {
+            for (int j = 0; j < d; j++) {
+                vector[j] = rand.nextGaussian();
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        lsh.write(new DataOutputStream(bytes));
+        LSHSuperBit copy = LSHSuperBit.read(new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())));
+
+        int[] all = lsh.hashAll(vectors, 2);
+        for (int i = 0; i < vectors.length; i++) {
+            int[] hash = lsh.hash(vectors[i]);
+            assertArrayEquals(hash, copy.hash(vectors[i]));
+            for (int s = 0; s < 5; s++) {
+                assertEquals(hash[s], all[i * 5 + s]);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class KernelsTest {
+
+    /**
+     * Test that the division-free modular reduction of the scalar kernel is
+     * identical to %, including for the extreme values of a, b and x.
+     */
+    @Test
+    public final void testMinHashReduction() {
+        long p = Kernels.MINHASH_PRIME;
+        long[] a = {1, 1, p - 1, p - 1, 2, 1234567, p - 2};
+        long[] b = {1, p - 1, 1, p - 1, p - 2, 7654321, 1};
+        int[] values = {
+            0, 1, 2, (int) (p - 1) / 2, Integer.MAX_VALUE, -1,
+            Integer.MIN_VALUE};
+
+        for (int x : values) {
+            int[] sig = new int[a.length];
+            Arrays.fill(sig, Integer.MAX_VALUE);
+            Kernels.scalar().minHash(a, b, x, sig);
+            for (int i = 0; i < a.length; i++) {
+                long expected = (a[i] * x + b[i]) % p;
+                assertEquals(expected, sig[i]);
+            }
+        }
+    }
+
+    /**
+     * Test that the selected kernels (SIMD if the Vector API is available)
+     * produce the same results as the scalar kernels.
+     */
+    @Test
+    public final void testSameAsScalar() {
+        System.out.println("Kernels " + Kernels.get().name());
+        Kernels kernels = Kernels.get();
+        Kernels scalar = Kernels.scalar();
+        Random rand = new Random(1);
+
+        int n = 37;
+        long[] a = new long[n];
+        long[] b = new long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = rand.nextInt(Integer.MAX_VALUE - 1) + 1;
+            b[i] = rand.nextInt(Integer.MAX_VALUE - 1) + 1;
+        }
+
+        int[] sig = new int[n];
+        int[] expected = new int[n];
+        Arrays.fill(sig, Integer.MAX_VALUE);
+        Arrays.fill(expected, Integer.MAX_VALUE);
+        int[] values = {0, 1, 7, 123456, Integer.MAX_VALUE, -5};
+        for (int x : values) {
+            kernels.minHash(a, b, x, sig);
+            scalar.minHash(a, b, x, expected);
+            assertArrayEquals(expected, sig);
+        }
+
+        int d = 103;
+        double[] h = new double[4 * d];
+        double[] v = new double[4 * d];
+        for (int i = 0; i < h.length; i++) {
+            h[i] = rand.nextGaussian();
+            v[i] = rand.nextGaussian();
+        }
+
+        double[] dots = new double[4];
+        kernels.dot4(h, d, v, 0, d, dots);
+        for (int r = 0; r < 4; r++) {
+            assertEquals(
+                    scalar.dot(h, d, v, r * d, d),
+                    dots[r],
+                    1e-9);
+            assertEquals(
+                    kernels.dot(h, d, v, r * d, d),
+                    dots[r],
+                    0.0);
+        }
+    }
+}
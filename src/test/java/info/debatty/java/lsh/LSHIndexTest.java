@@ -0,0 +1,263 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class LSHIndexTest {
+
+    /**
+     * Test of query method, of class LSHIndex.
+     */
+    @Test
+    public void testQuery() {
+        System.out.println("query");
+
+        int count = 500;
+        int n = 100;
+        boolean[][] vectors = randomVectors(count, n);
+
+        LSHMinHash lsh = new LSHMinHash(4, 10, n, 123456);
+        LSHIndex<String> index = new LSHIndex<String>(lsh);
+        int[][] hashes = new int[count][];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = lsh.hash(vectors[i]);
+            assertEquals(i, index.add("item" + i, hashes[i]));
+        }
+
+        assertEquals(count, index.size());
+        assertEquals("item42", index.getKey(42));
+
+        int[] candidates = index.query(hashes[42]);
+        assertTrue(Arrays.binarySearch(candidates, 42) >= 0);
+
+        // candidates are sorted, unique, and match a brute force scan
+        int expected = 0;
+        for (int i = 0; i < count; i++) {
+            if (collide(hashes[i], hashes[42])) {
+                expected++;
+            }
+        }
+        assertEquals(expected, candidates.length);
+        for (int i = 1; i < candidates.length; i++) {
+            assertTrue(candidates[i - 1] < candidates[i]);
+        }
+    }
+
+    /**
+     * Test of allCandidatePairs method, of class LSHIndex.
+     */
+    @Test
+    public void testAllCandidatePairs() {
+        System.out.println("allCandidatePairs");
+
+        int count = 300;
+        int n = 100;
+        boolean[][] vectors = randomVectors(count, n);
+
+        LSHMinHash lsh = new LSHMinHash(3, 10, n, 123456);
+        LSHIndex<Integer> index = new LSHIndex<Integer>(lsh);
+        final int[][] hashes = new int[count][];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = lsh.hash(vectors[i]);
+            index.add(i, hashes[i]);
+        }
+
+        final Set<Long> pairs = new HashSet<Long>();
+        index.allCandidatePairs(new CandidatePairListener() {
+            public void candidatePair(final int id1, final int id2) {
+                assertTrue(id1 < id2);
+                assertTrue(collide(hashes[id1], hashes[id2]));
+                // each pair is reported only once
+                assertTrue(pairs.add((long) id1 * Integer.MAX_VALUE + id2));
+            }
+        });
+
+        int expected = 0;
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < i; j++) {
+                if (collide(hashes[i], hashes[j])) {
+                    expected++;
+                }
+            }
+        }
+        assertEquals(expected, pairs.size());
+    }
+
+    /**
+     * Test of query method (with a Candidates collector), of class LSHIndex.
+     */
+    @Test
+    public void testQueryCandidates() {
+        System.out.println("query(hash, candidates)");
+
+        int count = 500;
+        int n = 100;
+        boolean[][] vectors = randomVectors(count, n);
+
+        LSHMinHash lsh = new LSHMinHash(4, 10, n, 123456);
+        LSHIndex<String> index = new LSHIndex<String>(lsh);
+        int[][] hashes = new int[count][];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = lsh.hash(vectors[i]);
+            index.add("item" + i, hashes[i]);
+        }
+
+        // the same collector is reused for all queries
+        Candidates candidates = new Candidates();
+        for (int q = 0; q < count; q += 10) {
+            index.query(hashes[q], candidates);
+
+            int[] ids = candidates.getIds(1);
+            Arrays.sort(ids);
+            assertArrayEquals(index.query(hashes[q]), ids);
+
+            int strong = 0;
+            for (int i = 0; i < candidates.size(); i++) {
+                int id = candidates.getId(i);
+                int collisions = 0;
+                for (int stage = 0; stage < 4; stage++) {
+                    if (hashes[id][stage] == hashes[q][stage]) {
+                        collisions++;
+                    }
+                }
+                assertEquals(collisions, candidates.getCollisions(i));
+                if (collisions >= 2) {
+                    strong++;
+                }
+            }
+            assertEquals(strong, candidates.getIds(2).length);
+            // the query item collides in all stages
+            assertEquals(
+                    4, candidates.getCollisions(position(candidates, q)));
+        }
+    }
+
+    /**
+     * Test of allCandidatePairs method, of class LSHIndex, with more items
+     * than a chunk of hashes.
+     */
+    @Test
+    public void testAllCandidatePairsLarge() {
+        System.out.println("allCandidatePairs (large)");
+
+        int count = 70000;
+        int buckets = 2000;
+        Random rand = new Random(1234);
+        LSHIndex<Integer> index = new LSHIndex<Integer>(2, buckets);
+        long[] stage0 = new long[buckets];
+        long[] stage1 = new long[buckets];
+        Map<Integer, Long> both = new HashMap<Integer, Long>();
+        for (int i = 0; i < count; i++) {
+            int[] hash = {rand.nextInt(buckets), rand.nextInt(buckets)};
+            index.add(i, hash);
+            stage0[hash[0]]++;
+            stage1[hash[1]]++;
+            Integer combination = hash[0] * buckets + hash[1];
+            Long previous = both.get(combination);
+            if (previous == null) {
+                previous = 0L;
+            }
+            both.put(combination, previous + 1);
+        }
+
+        // pairs that collide in stage 0 or in stage 1
+        long expected = 0;
+        for (int b = 0; b < buckets; b++) {
+            expected += stage0[b] * (stage0[b] - 1) / 2;
+            expected += stage1[b] * (stage1[b] - 1) / 2;
+        }
+        for (long c : both.values()) {
+            expected -= c * (c - 1) / 2;
+        }
+
+        final long[] pairs = new long[1];
+        index.allCandidatePairs(new CandidatePairListener() {
+            public void candidatePair(final int id1, final int id2) {
+                pairs[0]++;
+            }
+        });
+        assertEquals(expected, pairs[0]);
+    }
+
+    /**
+     * An index that does not keep the items can be queried, but has no
+     * keys.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testWithoutItems() {
+        System.out.println("keep_items = false");
+
+        LSHIndex<String> index = new LSHIndex<String>(
+                2, 10, new HeapBucketStore(20), false);
+        assertEquals(0, index.add("a", new int[] {1, 2}));
+        assertEquals(1, index.add("b", new int[] {1, 3}));
+        assertEquals(2, index.size());
+        assertArrayEquals(new int[] {0, 1}, index.query(new int[] {1, 0}));
+        index.getKey(0);
+    }
+
+    private static int position(final Candidates candidates, final int id) {
+        for (int i = 0; i < candidates.size(); i++) {
+            if (candidates.getId(i) == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean collide(final int[] hash1, final int[] hash2) {
+        for (int stage = 0; stage < hash1.length; stage++) {
+            if (hash1[stage] == hash2[stage]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean[][] randomVectors(final int count, final int n) {
+        Random rand = new Random(1234);
+        boolean[][] vectors = new boolean[count][n];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < n; j++) {
+                vectors[i][j] = rand.nextDouble() > 0.75;
+            }
+        }
+        return vectors;
+    }
+}
@@ -23,6 +23,15 @@
  */
 package info.debatty.java.lsh;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
 import org.junit.Test;
 
@@ -77,4 +86,76 @@ public class LSHMinHashTest {
       }
     }
   }
+
+  /**
+   * Test of hash method with a provided result array, of class LSHMinHash.
+   */
+  @Test
+  public void testHashWithBuffer() {
+    System.out.println("hash(vector, hash)");
+
+    int n = 1000;
+    int stages = 3;
+    int buckets = 10;
+    Random rand = new Random();
+    LSHMinHash lsh = new LSHMinHash(stages, buckets, n, 123456);
+
+    int[] hash = new int[stages];
+    for (int i = 0; i < 100; i++) {
+      boolean[] vector = new boolean[n];
+      for (int j = 0; j < n; j++) {
+        vector[j] = rand.nextDouble() > 0.75;
+      }
+
+      assertSame(hash, lsh.hash(vector, hash));
+      assertArrayEquals(lsh.hash(vector), hash);
+    }
+  }
+
+  /**
+   * Test of hashAll method, of class LSHMinHash.
+   */
+  @Test
+  public void testHashAll() {
+    System.out.println("hashAll");
+
+    int count = 500;
+    int n = 200;
+    int stages = 3;
+    Random rand = new Random();
+    boolean[][] vectors = new boolean[count][n];
+    for (int i = 0; i < count; i++) {
+      for (int j = 0; j < n; j++) {
+        vectors[i][j] = rand.nextDouble() > 0.75;
+      }
+    }
+
+    LSHMinHash lsh = new LSHMinHash(stages, 10, n, 123456);
+    int[] hashes = lsh.hashAll(vectors, 4);
+    assertArrayEquals(hashes, lsh.hashAll(Arrays.asList(vectors), 1));
+
+    for (int i = 0; i < count; i++) {
+      assertArrayEquals(
+          lsh.hash(vectors[i]),
+          Arrays.copyOfRange(hashes, i * stages, (i + 1) * stages));
+    }
+  }
+
+  /**
+   * writeSeed fails without writing anything if the object was not created
+   * with a seed.
+   * @throws IOException if the model cannot be written
+   */
+  @Test
+  public void testWriteSeedWithoutSeed() throws IOException {
+    System.out.println("writeSeed without seed");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      new LSHMinHash(4, 10, 100).writeSeed(new DataOutputStream(bytes));
+      fail("IllegalStateException expected");
+    } catch (IllegalStateException ex) {
+      assertEquals(0, bytes.size());
+    }
+  }
 }
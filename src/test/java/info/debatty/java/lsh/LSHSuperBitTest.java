@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class LSHSuperBitTest {
+
+    /**
+     * Test of hashAll method, of class LSHSuperBit.
+     */
+    @Test
+    public void testHashAll() {
+        System.out.println("hashAll");
+
+        int count = 500;
+        int d = 20;
+        int stages = 4;
+        Random rand = new Random();
+        double[][] vectors = new double[count][d];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < d; j++) {
+                vectors[i][j] = rand.nextGaussian();
+            }
+        }
+
+        LSHSuperBit lsh = new LSHSuperBit(stages, 10, d, 123456);
+        int[] hashes = lsh.hashAll(vectors, 4);
+        assertArrayEquals(hashes, lsh.hashAll(Arrays.asList(vectors), 1));
+
+        for (int i = 0; i < count; i++) {
+            assertArrayEquals(
+                    lsh.hash(vectors[i]),
+                    Arrays.copyOfRange(hashes, i * stages, (i + 1) * stages));
+        }
+    }
+
+    /**
+     * Test of hash methods for int[], float[] and byte[] inputs.
+     */
+    @Test
+    public void testHashInputTypes() {
+        System.out.println("hash(int[]), hash(float[]), hash(byte[])");
+
+        int d = 100;
+        Random rand = new Random(1234);
+        LSHSuperBit lsh = new LSHSuperBit(4, 10, d, 123456);
+        SuperBit sb = new SuperBit(d, 50, 20, 123456);
+
+        for (int i = 0; i < 20; i++) {
+            int[] ints = new int[d];
+            double[] doubles = new double[d];
+            float[] floats = new float[d];
+            byte[] bytes = new byte[d];
+            for (int j = 0; j < d; j++) {
+                bytes[j] = (byte) (rand.nextInt(256) - 128);
+                ints[j] = bytes[j];
+                doubles[j] = bytes[j];
+                floats[j] = bytes[j];
+            }
+
+            // int[] input is hashed exactly like the double[] vector
+            assertArrayEquals(lsh.hash(doubles), lsh.hash(ints));
+
+            // byte[] input is hashed like the float[] vector
+            assertArrayEquals(lsh.hash(floats), lsh.hash(bytes));
+            assertArrayEquals(
+                    sb.packedSignature(floats), sb.packedSignature(bytes));
+
+            // float[] signatures may only differ from double[] signatures
+            // for dot products that are (nearly) 0
+            assertTrue(SuperBit.hammingDistance(
+                    sb.packedSignature(doubles),
+                    sb.packedSignature(floats)) <= 5);
+        }
+    }
+
+    /**
+     * Test that sparse vectors are hashed like the dense vectors.
+     */
+    @Test
+    public void testHashSparse() {
+        System.out.println("hash(indices, values)");
+
+        int d = 1000;
+        Random rand = new Random(1234);
+        LSHSuperBit lsh = new LSHSuperBit(4, 10, d, 123456);
+        SuperBit sb = new SuperBit(d, 50, 20, 123456);
+        boolean scalar = Kernels.get() instanceof Kernels.Scalar;
+
+        for (int i = 0; i < 20; i++) {
+            int[] indices = new int[30];
+            double[] values = new double[30];
+            double[] dense = new double[d];
+            for (int j = 0; j < indices.length; j++) {
+                indices[j] = j * 33 + rand.nextInt(33);
+                values[j] = rand.nextGaussian();
+                dense[indices[j]] = values[j];
+            }
+
+            long[] sig = sb.packedSignature(indices, values);
+            assertArrayEquals(SuperBit.pack(sb.signature(indices, values)),
+                    sig);
+
+            // With sorted indices, the products are summed in the same
+            // order as the scalar dense dot product (the SIMD kernels use
+            // another order)
+            if (scalar) {
+                assertArrayEquals(sb.packedSignature(dense), sig);
+                assertArrayEquals(lsh.hash(dense), lsh.hash(indices, values));
+            } else {
+                assertTrue(SuperBit.hammingDistance(
+                        sb.packedSignature(dense), sig) <= 2);
+            }
+        }
+    }
+}
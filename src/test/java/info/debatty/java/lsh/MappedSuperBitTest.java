@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class MappedSuperBitTest {
+
+    /**
+     * Test that mapped hyperplanes produce the same signatures.
+     * @throws IOException if the model cannot be written or mapped
+     */
+    @Test
+    public void testSignature() throws IOException {
+        int d = 50;
+        SuperBit sb = new SuperBit(d, 25, 7, 123456);
+
+        File file = File.createTempFile("superbit", ".bin");
+        file.deleteOnExit();
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        sb.write(out);
+        out.close();
+
+        MappedSuperBit mapped = MappedSuperBit.open(file);
+        assertEquals(sb.getCodeLength(), mapped.getCodeLength());
+        assertEquals(d, mapped.getDimension());
+
+        Random r = new Random(1234);
+        for (int i = 0; i < 10; i++) {
+            double[] vector = new double[d];
+            for (int j = 0; j < d; j++) {
+                vector[j] = r.nextGaussian();
+            }
+
+            assertArrayEquals(sb.signature(vector), mapped.signature(vector));
+            assertArrayEquals(
+                    sb.packedSignature(vector),
+                    mapped.packedSignature(vector));
+        }
+    }
+
+    /**
+     * Test that a LSHSuperBit opened with mapped hyperplanes produces the
+     * same hashes, and can be written again.
+     * @throws IOException if the model cannot be written or mapped
+     */
+    @Test
+    public void testLSHOpen() throws IOException {
+        int d = 50;
+        LSHSuperBit lsh = new LSHSuperBit(4, 10, d, 123456);
+
+        File file = File.createTempFile("lsh", ".bin");
+        file.deleteOnExit();
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        lsh.write(out);
+        out.close();
+
+        LSHSuperBit mapped = LSHSuperBit.open(file);
+        assertEquals(lsh.getStages(), mapped.getStages());
+        assertEquals(lsh.getBuckets(), mapped.getBuckets());
+
+        Random r = new Random(1234);
+        int[] indices = {3, 7, 20, 49};
+        for (int i = 0; i < 10; i++) {
+            double[] vector = new double[d];
+            for (int j = 0; j < d; j++) {
+                vector[j] = r.nextGaussian();
+            }
+            int[] ints = new int[d];
+            for (int j = 0; j < d; j++) {
+                ints[j] = r.nextInt(10) - 5;
+            }
+            double[] values = {
+                r.nextGaussian(), r.nextGaussian(), r.nextGaussian(),
+                r.nextGaussian()};
+
+            assertArrayEquals(lsh.hash(vector), mapped.hash(vector));
+            assertArrayEquals(lsh.hash(ints), mapped.hash(ints));
+            assertArrayEquals(
+                    lsh.hash(indices, values), mapped.hash(indices, values));
+            assertArrayEquals(
+                    lsh.probe(vector, 4)[0], mapped.probe(vector, 4)[0]);
+        }
+
+        double[][] vectors = new double[20][d];
+        for (double[] vector : vectors) {
+            for (int j = 0; j < d; j++) {
+                vector[j] = r.nextGaussian();
+            }
+        }
+        assertArrayEquals(lsh.hashAll(vectors, 1), mapped.hashAll(vectors, 1));
+
+        // write copies the mapped hyperplanes
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        mapped.write(new DataOutputStream(bytes));
+        LSHSuperBit copy = LSHSuperBit.read(new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())));
+        assertArrayEquals(lsh.hash(vectors[0]), copy.hash(vectors[0]));
+    }
+
+    /**
+     * Models saved with only the seed cannot be mapped.
+     * @throws IOException if the model cannot be mapped
+     */
+    @Test(expected = IOException.class)
+    public void testOpenSeedModel() throws IOException {
+        File file = File.createTempFile("superbit", ".bin");
+        file.deleteOnExit();
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        new SuperBit(10, 5, 2, 123456).writeSeed(out);
+        out.close();
+
+        MappedSuperBit.open(file);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class MinHashIndexTest {
+
+    /**
+     * Test of query methods, of class MinHashIndex.
+     */
+    @Test
+    public void testQuery() {
+        System.out.println("query");
+
+        int count = 500;
+        int n = 200;
+        Random rand = new Random(1234);
+        final boolean[][] vectors = new boolean[count][n];
+        for (boolean[] vector : vectors) {
+            for (int i = 0; i < n; i++) {
+                vector[i] = rand.nextDouble() < 0.2;
+            }
+        }
+        // near duplicates of set 42
+        for (int i = 100; i < 110; i++) {
+            vectors[i] = vectors[42].clone();
+            vectors[i][i] = !vectors[i][i];
+        }
+
+        LSHMinHash lsh = new LSHMinHash(4, 10, n, 123456);
+        MinHashIndex<Integer> index = new MinHashIndex<Integer>(lsh);
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, index.add(i, vectors[i]));
+        }
+
+        Neighbors estimated = index.query(vectors[42], 5);
+        assertEquals(5, estimated.size());
+        assertEquals(42, estimated.getId(0));
+        assertEquals(1.0, estimated.getSimilarity(0), 0.0);
+
+        VectorStore<Integer, boolean[]> store =
+                new VectorStore<Integer, boolean[]>() {
+            @Override
+            public boolean[] get(final Integer key) {
+                return vectors[key];
+            }
+        };
+        Neighbors exact = index.query(vectors[42], 11, store, 50);
+        assertEquals(11, exact.size());
+        assertEquals(42, exact.getId(0));
+        for (int i = 1; i < exact.size(); i++) {
+            // the near duplicates are the exact nearest neighbors
+            assertTrue(exact.getId(i) >= 100 && exact.getId(i) < 110);
+            assertEquals(MinHash.jaccardIndex(
+                    vectors[42], vectors[exact.getId(i)]),
+                    exact.getSimilarity(i), 1e-12);
+        }
+    }
+}
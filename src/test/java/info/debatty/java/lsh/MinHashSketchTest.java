@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class MinHashSketchTest {
+
+    /**
+     * Test that incremental updates and merges produce the signature of the
+     * complete set.
+     */
+    @Test
+    public void testIncremental() {
+        MinHash mh = new MinHash(100, 1000, 123456);
+        Random rand = new Random(1234);
+        int[] set = new int[300];
+        for (int i = 0; i < set.length; i++) {
+            set[i] = rand.nextInt(1000);
+        }
+        int[] expected = mh.signature(set);
+
+        MinHashSketch sketch = new MinHashSketch(mh);
+        for (int i = 0; i < 100; i++) {
+            sketch.add(set[i]);
+        }
+
+        // The rest of the set is sketched on two "shards"
+        int[] part1 = new int[100];
+        int[] part2 = new int[100];
+        System.arraycopy(set, 100, part1, 0, 100);
+        System.arraycopy(set, 200, part2, 0, 100);
+        MinHashSketch shard1 = new MinHashSketch(mh);
+        shard1.addAll(part1);
+        MinHashSketch shard2 = new MinHashSketch(mh);
+        shard2.addAll(part2);
+
+        sketch.merge(shard1);
+        sketch.merge(shard2.signature());
+        assertArrayEquals(expected, sketch.signature());
+
+        sketch.clear();
+        assertArrayEquals(mh.signature(new int[0]), sketch.signature());
+    }
+}
@@ -2,6 +2,11 @@ package info.debatty.java.lsh;
 
 import static org.junit.Assert.assertArrayEquals;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Random;
 import java.util.Set;
@@ -31,4 +36,86 @@ public class MinHashTest {
 
         assertArrayEquals(mh.signature(ints), mh2.signature(ints));
     }
+
+    /**
+     * Test that all input types produce the same signature.
+     */
+    @Test
+    public void testInputTypes() {
+        int dict_size = 200;
+        MinHash mh = new MinHash(50, dict_size, 123456);
+
+        Random r = new Random(1234);
+        boolean[] vector = new boolean[dict_size];
+        for (int i = 0; i < dict_size; i++) {
+            vector[i] = r.nextInt(5) == 0;
+        }
+
+        Set<Integer> set = MinHash.convert2Set(vector);
+        final int[] ids = new int[set.size()];
+        int position = 0;
+        for (int id : set) {
+            ids[position] = id;
+            position++;
+        }
+
+        // ids in reverse order, with a duplicate
+        int[] unsorted = new int[ids.length + 1];
+        for (int i = 0; i < ids.length; i++) {
+            unsorted[i] = ids[ids.length - 1 - i];
+        }
+        unsorted[ids.length] = ids[0];
+
+        int[] expected = mh.signature(set);
+        assertArrayEquals(expected, mh.signature(vector));
+        assertArrayEquals(expected, mh.signature(ids));
+        assertArrayEquals(expected, mh.signature(unsorted));
+        assertArrayEquals(expected, mh.signature(new IntIterator() {
+            private int i = 0;
+
+            public boolean hasNext() {
+                return i < ids.length;
+            }
+
+            public int next() {
+                i++;
+                return ids[i - 1];
+            }
+        }));
+    }
+
+    /**
+     * Test that binary models produce the same signatures.
+     * @throws IOException if the model cannot be written or read
+     */
+    @Test
+    public void testWriteRead() throws IOException {
+        MinHash mh = new MinHash(100, 1000, 123456);
+        int[] set = {1, 17, 42, 999};
+
+        for (int mode = 0; mode < 2; mode++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (mode == 0) {
+                mh.write(out);
+            } else {
+                mh.writeSeed(out);
+            }
+            out.close();
+
+            MinHash copy = MinHash.read(new DataInputStream(
+                    new ByteArrayInputStream(bytes.toByteArray())));
+            assertArrayEquals(mh.signature(set), copy.signature(set));
+        }
+    }
+
+    /**
+     * Only MinHash objects created with a seed can be saved in SEED mode.
+     * @throws IOException if the model cannot be written
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testWriteSeedWithoutSeed() throws IOException {
+        new MinHash(100, 1000).writeSeed(
+                new DataOutputStream(new ByteArrayOutputStream()));
+    }
 }
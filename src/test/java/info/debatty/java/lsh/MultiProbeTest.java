@@ -0,0 +1,218 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class MultiProbeTest {
+
+    /**
+     * Test that the probed buckets are the distinct buckets of the perturbed
+     * signatures, in the order of increasing score.
+     */
+    @Test
+    public void testProbeBits() {
+        LSH lsh = new LSHSuperBit(2, 8, 10, 1);
+        double[] margins = {0.5, -0.1, 0.3, -0.9, 0.2, 0.05, -0.7, 0.4};
+        boolean[] sig = new boolean[margins.length];
+        for (int i = 0; i < margins.length; i++) {
+            sig[i] = margins[i] >= 0;
+        }
+
+        int[][] probes = lsh.probeBits(margins, 4);
+        int[] hash = lsh.hashSignature(sig);
+        assertEquals(hash[0], probes[0][0]);
+        assertEquals(hash[1], probes[1][0]);
+
+        // stage 0: flip bit 1, then bit 2, then bits 1 and 2 (0.1 + 0.3),
+        // then bit 0, bits 0 and 1, bits 0 and 2, skipping the buckets that
+        // are already probed
+        int[][] flips = {{1}, {2}, {1, 2}, {0}, {0, 1}, {0, 2}};
+        int[] expected = new int[flips.length + 1];
+        expected[0] = hash[0];
+        int distinct = 1;
+        for (int[] flip : flips) {
+            boolean[] flipped = Arrays.copyOf(sig, sig.length);
+            for (int bit : flip) {
+                flipped[bit] = !flipped[bit];
+            }
+            int bucket = lsh.hashSignature(flipped)[0];
+            if (!contains(expected, distinct, bucket)) {
+                expected[distinct] = bucket;
+                distinct++;
+            }
+        }
+        assertEquals(4, probes[0].length);
+        assertTrue(distinct >= 4);
+        assertArrayEquals(Arrays.copyOf(expected, 4), probes[0]);
+        assertDistinct(probes[1]);
+    }
+
+    /**
+     * Test that duplicate buckets (including the bucket of the query) are
+     * skipped, and that perturbations are used until enough distinct buckets
+     * are found.
+     */
+    @Test
+    public void testDistinct() {
+        // with 2 buckets, perturbing rows 0 and 1 (even deltas) leads to the
+        // bucket of the query: only row 2 leads to the other bucket
+        long[] deltas = {2, 4, 1};
+        double[] scores = {0.1, 0.2, 0.3};
+        int[] probes = MultiProbe.probeStage(
+                0, deltas, scores, 0, 3, 100, 2, 5);
+        assertArrayEquals(new int[] {0, 1}, probes);
+
+        probes = MultiProbe.probeStage(0, deltas, scores, 0, 3, 100, 10, 3);
+        assertArrayEquals(new int[] {0, 2, 4}, probes);
+    }
+
+    /**
+     * Test that rows are sorted by increasing score, and that rows with the
+     * same score keep their order.
+     */
+    @Test
+    public void testSortByScore() {
+        double[] scores = {9, 0.5, 0.2, 0.5, Double.POSITIVE_INFINITY, 0.1};
+        int[] rows = {1, 2, 3, 4, 5};
+        MultiProbe.sortByScore(rows, scores);
+        assertArrayEquals(new int[] {5, 2, 1, 3, 4}, rows);
+    }
+
+    /**
+     * Test that the probed buckets of MinHash signatures are the buckets of
+     * the signatures where a value is replaced by the alternative value, and
+     * that rows without alternative are never perturbed.
+     */
+    @Test
+    public void testProbeRows() {
+        LSH lsh = new LSHMinHash(2, 10, 100, 1);
+        int[] sig = {12, 345, 6789, 10, 11, 12};
+        int[] second = {20, 400, 7000, 15, 12, Integer.MAX_VALUE};
+        double[] scores = new double[sig.length];
+        for (int i = 0; i < sig.length; i++) {
+            scores[i] = (double) second[i] - sig[i];
+        }
+        scores[5] = Double.POSITIVE_INFINITY;
+
+        int[][] probes = lsh.probeRows(sig, second, scores, 10);
+        assertArrayEquals(lsh.hashSignature(sig), new int[] {
+            probes[0][0], probes[1][0]});
+
+        // row 0 (gap 8) is replaced first in stage 0
+        int[] replaced = Arrays.copyOf(sig, sig.length);
+        replaced[0] = second[0];
+        assertEquals(lsh.hashSignature(replaced)[0], probes[0][1]);
+
+        // stage 0: at most the 7 non-empty subsets of 3 rows are probed
+        assertTrue(probes[0].length <= 8);
+        assertDistinct(probes[0]);
+
+        // stage 1: row 5 cannot be replaced, 3 subsets of 2 rows remain
+        assertTrue(probes[1].length <= 4);
+        assertDistinct(probes[1]);
+
+        LSHMinHash lsh_minhash = new LSHMinHash(5, 10, 100, 1);
+        boolean[] vector = new boolean[100];
+        for (int i = 0; i < vector.length; i += 7) {
+            vector[i] = true;
+        }
+        int[] hash = lsh_minhash.hash(vector);
+        int[][] minhash_probes = lsh_minhash.probe(vector, 5);
+        for (int stage = 0; stage < 5; stage++) {
+            assertEquals(hash[stage], minhash_probes[stage][0]);
+            assertTrue(minhash_probes[stage].length <= 5);
+            assertDistinct(minhash_probes[stage]);
+        }
+    }
+
+    /**
+     * Test that multi-probe queries increase the recall of an LSHIndex.
+     */
+    @Test
+    public void testRecall() {
+        int d = 50;
+        int count = 200;
+        LSHSuperBit lsh = new LSHSuperBit(2, 40, d, 123456);
+        LSHIndex<Integer> index = new LSHIndex<Integer>(lsh);
+        Random rand = new Random(1234);
+
+        double[][] vectors = new double[count][d];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < d; j++) {
+                vectors[i][j] = rand.nextGaussian();
+            }
+            index.add(i, lsh.hash(vectors[i]));
+        }
+
+        int found = 0;
+        int found_probe = 0;
+        for (int i = 0; i < count; i++) {
+            double[] query = new double[d];
+            for (int j = 0; j < d; j++) {
+                query[j] = vectors[i][j] + 0.3 * rand.nextGaussian();
+            }
+
+            int[][] probes = lsh.probe(query, 20);
+            assertEquals(lsh.hash(query)[0], probes[0][0]);
+
+            if (Arrays.binarySearch(index.query(lsh.hash(query)), i) >= 0) {
+                found++;
+            }
+            if (Arrays.binarySearch(index.query(probes), i) >= 0) {
+                found_probe++;
+            }
+        }
+
+        assertTrue(found_probe >= found);
+        assertTrue(found_probe > found + count / 10);
+    }
+
+    private static void assertDistinct(final int[] buckets) {
+        for (int i = 0; i < buckets.length; i++) {
+            assertFalse(contains(buckets, i, buckets[i]));
+        }
+    }
+
+    private static boolean contains(
+            final int[] array, final int length, final int value) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class OnePermutationMinHashTest {
+
+    /**
+     * Test that the signatures estimate the Jaccard index.
+     */
+    @Test
+    public void testSimilarity() {
+        OnePermutationMinHash oph = new OnePermutationMinHash(1024, 123456);
+
+        // 600 common elements out of 1000: J = 0.6
+        int[] set1 = new int[800];
+        int[] set2 = new int[800];
+        for (int i = 0; i < 600; i++) {
+            set1[i] = i;
+            set2[i] = i;
+        }
+        for (int i = 600; i < 800; i++) {
+            set1[i] = 1000 + i;
+            set2[i] = 2000 + i;
+        }
+
+        int[] sig1 = oph.signature(set1);
+        int[] sig2 = oph.signature(set2);
+        assertEquals(0.6, oph.similarity(sig1, sig2), 0.05);
+
+        MinHash mh = new MinHash(1024, 5000, 1);
+        assertEquals(oph.similarity(sig1, sig2), mh.similarity(sig1, sig2),
+                0.0);
+
+        Set<Integer> set = new HashSet<Integer>();
+        for (int id : set1) {
+            set.add(id);
+        }
+        assertArrayEquals(sig1, oph.signature(set));
+        assertArrayEquals(
+                sig1, new OnePermutationMinHash(1024, 123456).signature(set1));
+    }
+
+    /**
+     * Test that all bins of a small set are filled by the densification,
+     * and that the signature of the empty set only contains empty bins.
+     */
+    @Test
+    public void testDensification() {
+        OnePermutationMinHash oph = new OnePermutationMinHash(256, 1);
+
+        int[] sig = oph.signature(new int[] {3, 17, 42});
+        Set<Integer> values = new HashSet<Integer>();
+        for (int value : sig) {
+            assertTrue(value >= 0);
+            assertTrue(value != Integer.MAX_VALUE);
+            values.add(value);
+        }
+        assertEquals(3, values.size());
+        assertArrayEquals(sig, oph.signature(new int[] {42, 3, 17, 3}));
+
+        for (int value : oph.signature(new int[0])) {
+            assertEquals(Integer.MAX_VALUE, value);
+        }
+    }
+
+    /**
+     * Test that the signatures can be binned by LSHMinHash.
+     */
+    @Test
+    public void testHashSignature() {
+        OnePermutationMinHash oph = new OnePermutationMinHash(512, 1);
+        LSHMinHash lsh = new LSHMinHash(8, 10, 512, 1);
+
+        boolean[] vector = new boolean[300];
+        for (int i = 0; i < vector.length; i += 3) {
+            vector[i] = true;
+        }
+
+        int[] hash = lsh.hashSignature(oph.signature(vector));
+        assertEquals(8, hash.length);
+        assertArrayEquals(hash, lsh.hashSignature(
+                oph.signature(MinHash.convert2Set(vector))));
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class SegmentedLSHIndexTest {
+
+    /**
+     * Test of query method, of class SegmentedLSHIndex, before and after
+     * the index is closed and opened again.
+     */
+    @Test
+    public void testQuery() throws Exception {
+        System.out.println("query");
+
+        int count = 1000;
+        int n = 100;
+        Random rand = new Random(1234);
+        LSHMinHash lsh = new LSHMinHash(4, 10, n, 123456);
+        int[][] hashes = new int[count][];
+        for (int i = 0; i < count; i++) {
+            boolean[] vector = new boolean[n];
+            for (int j = 0; j < n; j++) {
+                vector[j] = rand.nextBoolean();
+            }
+            hashes[i] = lsh.hash(vector);
+        }
+
+        File directory = File.createTempFile("lsh", "index");
+        directory.delete();
+
+        LSHIndex<Integer> expected = new LSHIndex<Integer>(lsh);
+        SegmentedLSHIndex index =
+                SegmentedLSHIndex.open(directory, 4, 10, 64, 3);
+        for (int i = 0; i < 600; i++) {
+            expected.add(i, hashes[i]);
+            assertEquals(i, index.add(hashes[i]));
+        }
+        // some items are still pending
+        assertSameCandidates(expected, index, hashes);
+        index.close();
+        assertTrue(index.getSegmentCount() < 600 / 64);
+
+        index = SegmentedLSHIndex.open(directory, lsh);
+        assertEquals(600, index.size());
+        assertSameCandidates(expected, index, hashes);
+
+        for (int i = 600; i < count; i++) {
+            expected.add(i, hashes[i]);
+            assertEquals(i, index.add(hashes[i]));
+        }
+        index.forceMerge();
+        assertEquals(1, index.getSegmentCount());
+        assertSameCandidates(expected, index, hashes);
+        index.close();
+
+        index = SegmentedLSHIndex.open(directory, lsh);
+        assertEquals(count, index.size());
+        assertSameCandidates(expected, index, hashes);
+        index.close();
+
+        // only the lock, the manifest and the merged segment remain
+        File[] files = directory.listFiles();
+        assertEquals(3, files.length);
+        for (File file : files) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Background merges only merge segments that fit in the size limit, and
+     * never make add or flush fail.
+     */
+    @Test
+    public void testMergeSizeLimit() throws Exception {
+        System.out.println("merge size limit");
+
+        Random rand = new Random(1234);
+        int[][] hashes = new int[2000][4];
+        for (int[] hash : hashes) {
+            for (int s = 0; s < 4; s++) {
+                hash[s] = rand.nextInt(10);
+            }
+        }
+
+        File directory = File.createTempFile("lsh", "index");
+        directory.delete();
+
+        // a segment of 100 items is about 4KB: at most 3 fit in the limit
+        long limit = 13000;
+        LSHIndex<Integer> expected = new LSHIndex<Integer>(4, 10);
+        SegmentedLSHIndex index =
+                SegmentedLSHIndex.open(directory, 4, 10, 100, 4, limit);
+        for (int i = 0; i < hashes.length; i++) {
+            expected.add(i, hashes[i]);
+            assertEquals(i, index.add(hashes[i]));
+        }
+        index.close();
+        assertSameCandidates(expected, index, hashes);
+
+        File[] files = directory.listFiles();
+        boolean merged = false;
+        for (File file : files) {
+            assertTrue(file.length() <= limit);
+            if (file.length() > 2 * 4000) {
+                merged = true;
+            }
+        }
+        assertTrue(merged);
+        assertTrue(index.getSegmentCount() >= 2000 / 300);
+
+        for (File file : files) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * While a writer holds the directory, another index is read-only and
+     * does not delete the files of the writer.
+     */
+    @Test
+    public void testLock() throws Exception {
+        System.out.println("lock");
+
+        Random rand = new Random(1234);
+        int[][] hashes = new int[200][4];
+        for (int[] hash : hashes) {
+            for (int s = 0; s < 4; s++) {
+                hash[s] = rand.nextInt(10);
+            }
+        }
+
+        File directory = File.createTempFile("lsh", "index");
+        directory.delete();
+
+        LSHIndex<Integer> expected = new LSHIndex<Integer>(4, 10);
+        SegmentedLSHIndex writer =
+                SegmentedLSHIndex.open(directory, 4, 10, 100, 10);
+        for (int i = 0; i < hashes.length; i++) {
+            expected.add(i, hashes[i]);
+            writer.add(hashes[i]);
+        }
+        writer.flush();
+        assertFalse(writer.isReadOnly());
+
+        // a segment that is being written by the writer
+        File temporary = new File(directory, "segment-9.lsh.tmp");
+        assertTrue(temporary.createNewFile());
+
+        SegmentedLSHIndex reader = SegmentedLSHIndex.open(directory, 4, 10);
+        assertTrue(reader.isReadOnly());
+        assertTrue(temporary.exists());
+        assertEquals(hashes.length, reader.size());
+        assertSameCandidates(expected, reader, hashes);
+        try {
+            reader.add(hashes[0]);
+            fail("A read-only index should not accept items");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        reader.close();
+
+        // the lock is released when the writer is closed
+        writer.close();
+        SegmentedLSHIndex index = SegmentedLSHIndex.open(directory, 4, 10);
+        assertFalse(index.isReadOnly());
+        assertFalse(temporary.exists());
+        assertSameCandidates(expected, index, hashes);
+        index.close();
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private static void assertSameCandidates(
+            final LSHIndex<Integer> expected, final SegmentedLSHIndex index,
+            final int[][] hashes) {
+        for (int[] hash : hashes) {
+            assertArrayEquals(expected.query(hash), index.query(hash));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class SuperBitIndexTest {
+
+    /**
+     * Test of query methods, of class SuperBitIndex.
+     */
+    @Test
+    public void testQuery() {
+        System.out.println("query");
+
+        int count = 1000;
+        int n = 32;
+        Random rand = new Random(1234);
+        final double[][] vectors = new double[count][n];
+        for (double[] vector : vectors) {
+            for (int i = 0; i < n; i++) {
+                vector[i] = rand.nextGaussian();
+            }
+        }
+
+        LSHSuperBit lsh = new LSHSuperBit(4, 8, n, 123456);
+        SuperBitIndex<Integer> index = new SuperBitIndex<Integer>(lsh);
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, index.add(i, vectors[i]));
+        }
+        assertEquals(count, index.size());
+
+        // the query vector is its own nearest neighbor
+        Neighbors estimated = index.query(vectors[42], 10);
+        assertEquals(10, estimated.size());
+        assertEquals(42, estimated.getId(0));
+        assertEquals(1.0, estimated.getSimilarity(0), 1e-9);
+        for (int i = 1; i < estimated.size(); i++) {
+            assertTrue(estimated.getSimilarity(i)
+                    <= estimated.getSimilarity(i - 1));
+        }
+
+        // re-ranking all candidates gives the exact top 10 among candidates
+        VectorStore<Integer, double[]> store =
+                new VectorStore<Integer, double[]>() {
+            @Override
+            public double[] get(final Integer key) {
+                return vectors[key];
+            }
+        };
+        Neighbors exact = index.query(vectors[42], 10, store, count);
+        LSHIndex<Integer> candidates = new LSHIndex<Integer>(lsh);
+        for (int i = 0; i < count; i++) {
+            candidates.add(i, lsh.hash(vectors[i]));
+        }
+        TopK expected = new TopK(10);
+        for (int id : candidates.query(lsh.hash(vectors[42]))) {
+            expected.offer(id,
+                    SuperBit.cosineSimilarity(vectors[42], vectors[id]));
+        }
+        Neighbors brute_force = expected.drain();
+        assertArrayEquals(brute_force.getIds(), exact.getIds());
+        for (int i = 0; i < exact.size(); i++) {
+            assertEquals(brute_force.getSimilarity(i),
+                    exact.getSimilarity(i), 1e-12);
+        }
+    }
+}
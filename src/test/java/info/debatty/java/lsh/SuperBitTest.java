@@ -1,7 +1,13 @@
 package info.debatty.java.lsh;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Random;
 
 import org.junit.Test;
@@ -36,4 +42,166 @@ public class SuperBitTest {
                     "Signatures are different at index " + i, sig1[i], sig2[i]);
         }
     }
+
+    /**
+     * Test that packed signatures are consistent with boolean signatures.
+     */
+    @Test
+    public final void testPackedSignature() {
+        int d = 20;
+        SuperBit sb = new SuperBit(d, 10, 13, 123456);
+        LSHSuperBit lsh = new LSHSuperBit(2, 10, d, 123456);
+
+        Random r = new Random(1234);
+        double[] v1 = new double[d];
+        double[] v2 = new double[d];
+        for (int i = 0; i < d; i++) {
+            v1[i] = r.nextGaussian();
+            v2[i] = r.nextGaussian();
+        }
+
+        boolean[] sig1 = sb.signature(v1);
+        boolean[] sig2 = sb.signature(v2);
+        long[] packed1 = sb.packedSignature(v1);
+        long[] packed2 = sb.packedSignature(v2);
+
+        assertArrayEquals(SuperBit.pack(sig1), packed1);
+        assertEquals(
+                sb.similarity(sig1, sig2),
+                sb.similarity(packed1, packed2),
+                1E-9);
+
+        int distance = 0;
+        for (int i = 0; i < sig1.length; i++) {
+            if (sig1[i] != sig2[i]) {
+                distance++;
+            }
+        }
+        assertEquals(distance, SuperBit.hammingDistance(packed1, packed2));
+
+        assertArrayEquals(
+                lsh.hashSignature(sig1),
+                lsh.hashSignature(packed1, sig1.length));
+    }
+
+    /**
+     * Test that batch signatures are identical to individual signatures.
+     */
+    @Test
+    public final void testSignatures() {
+        int d = 30;
+        int count = 150;
+        SuperBit sb = new SuperBit(d, 10, 7, 123456);
+
+        Random r = new Random(1234);
+        double[][] vectors = new double[count][d];
+        double[] block = new double[count * d];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < d; j++) {
+                vectors[i][j] = r.nextGaussian();
+                block[i * d + j] = vectors[i][j];
+            }
+        }
+
+        long[][] sigs = sb.signatures(vectors);
+        int words = sigs[0].length;
+        long[] flat = sb.signatures(block, count, new long[count * words]);
+        for (int i = 0; i < count; i++) {
+            long[] expected = sb.packedSignature(vectors[i]);
+            assertArrayEquals(expected, sigs[i]);
+            for (int w = 0; w < words; w++) {
+                assertEquals(expected[w], flat[i * words + w]);
+            }
+        }
+    }
+
+    /**
+     * Test that binary models produce the same signatures.
+     * @throws IOException if the model cannot be written or read
+     */
+    @Test
+    public final void testWriteRead() throws IOException {
+        int d = 30;
+        LSHSuperBit lsh = new LSHSuperBit(3, 10, d, 123456);
+        SuperBit sb = new SuperBit(d, 10, 7, 123456);
+
+        Random r = new Random(1234);
+        double[] vector = new double[d];
+        for (int i = 0; i < d; i++) {
+            vector[i] = r.nextGaussian();
+        }
+
+        for (int mode = 0; mode < 2; mode++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (mode == 0) {
+                sb.write(out);
+                lsh.write(out);
+            } else {
+                sb.writeSeed(out);
+                lsh.writeSeed(out);
+            }
+            out.close();
+
+            DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(bytes.toByteArray()));
+            SuperBit sb_copy = SuperBit.read(in);
+            LSHSuperBit lsh_copy = LSHSuperBit.read(in);
+
+            assertArrayEquals(
+                    sb.packedSignature(vector),
+                    sb_copy.packedSignature(vector));
+            assertArrayEquals(lsh.hash(vector), lsh_copy.hash(vector));
+            assertEquals(lsh.getStages(), lsh_copy.getStages());
+            assertEquals(lsh.getBuckets(), lsh_copy.getBuckets());
+        }
+    }
+
+    /**
+     * Test that the batches of hyperplanes are orthonormal, and do not
+     * depend on the number of threads.
+     */
+    @Test
+    public void testOrthogonalize() {
+        int d = 40;
+        int n = 30;
+        int l = 6;
+        Random rand = new Random(1234);
+        double[][] w1 = new double[n * l][d];
+        double[][] w2 = new double[n * l][d];
+        for (int i = 0; i < n * l; i++) {
+            for (int j = 0; j < d; j++) {
+                w1[i][j] = rand.nextGaussian();
+                w2[i][j] = w1[i][j];
+            }
+        }
+
+        SuperBit.orthogonalize(w1, n, l, 1);
+        SuperBit.orthogonalize(w2, n, l, 4);
+
+        for (int i = 0; i < n * l; i++) {
+            assertArrayEquals(w1[i], w2[i], 0.0);
+            for (int k = (i / n) * n; k <= i; k++) {
+                double dot = 0;
+                for (int j = 0; j < d; j++) {
+                    dot += w1[i][j] * w1[k][j];
+                }
+
+                if (k == i) {
+                    assertEquals(1.0, dot, 1e-12);
+                } else {
+                    assertEquals(0.0, dot, 1e-12);
+                }
+            }
+        }
+
+        // the parallelism of the constructor does not change the hyperplanes
+        double[][] sequential =
+                new SuperBit(d, n, l, 123456, 1).getHyperplanes();
+        double[][] parallel =
+                new SuperBit(d, n, l, 123456, 4).getHyperplanes();
+        for (int i = 0; i < n * l; i++) {
+            assertArrayEquals(sequential[i], parallel[i], 0.0);
+        }
+    }
 }
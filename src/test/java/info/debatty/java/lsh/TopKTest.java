@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class TopKTest {
+
+    /**
+     * Test of offer and drain methods, of class TopK.
+     */
+    @Test
+    public void testDrain() {
+        System.out.println("drain");
+
+        Random rand = new Random(1234);
+        double[] scores = new double[1000];
+        TopK top = new TopK(10);
+        for (int id = 0; id < scores.length; id++) {
+            // few distinct values, to test ties
+            scores[id] = rand.nextInt(50);
+            top.offer(id, scores[id]);
+        }
+
+        double[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        Neighbors neighbors = top.drain();
+        assertEquals(10, neighbors.size());
+        assertEquals(0, top.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(sorted[sorted.length - 1 - i],
+                    neighbors.getSimilarity(i), 0.0);
+            assertEquals(scores[neighbors.getId(i)],
+                    neighbors.getSimilarity(i), 0.0);
+            if (i > 0 && neighbors.getSimilarity(i)
+                    == neighbors.getSimilarity(i - 1)) {
+                // ties: smallest id first
+                assertTrue(neighbors.getId(i) > neighbors.getId(i - 1));
+            }
+        }
+    }
+
+    /**
+     * Test that NaN scores rank below all other scores.
+     */
+    @Test
+    public void testNaN() {
+        System.out.println("NaN");
+
+        Random rand = new Random(1234);
+        TopK top = new TopK(10);
+        for (int id = 0; id < 1000; id++) {
+            if (id % 3 == 0) {
+                top.offer(id, Double.NaN);
+            } else {
+                top.offer(id, rand.nextDouble() - 1);
+            }
+        }
+
+        Neighbors neighbors = top.drain();
+        assertEquals(10, neighbors.size());
+        for (int i = 0; i < 10; i++) {
+            assertFalse(Double.isNaN(neighbors.getSimilarity(i)));
+            if (i > 0) {
+                assertTrue(neighbors.getSimilarity(i)
+                        <= neighbors.getSimilarity(i - 1));
+            }
+        }
+
+        // NaN items are kept only if there are not enough other items
+        top = new TopK(3);
+        top.offer(0, Double.NaN);
+        top.offer(1, -1);
+        top.offer(2, Double.NaN);
+        top.offer(3, Double.NEGATIVE_INFINITY);
+        neighbors = top.drain();
+        assertEquals(1, neighbors.getId(0));
+        assertEquals(3, neighbors.getId(1));
+        assertEquals(0, neighbors.getId(2));
+    }
+}
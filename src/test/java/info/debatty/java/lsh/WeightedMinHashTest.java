@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Thibault Debatty.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package info.debatty.java.lsh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author Thibault Debatty
+ */
+public class WeightedMinHashTest {
+
+    /**
+     * Test that the signatures estimate the weighted Jaccard index.
+     */
+    @Test
+    public void testSimilarity() {
+        int dict_size = 500;
+        WeightedMinHash wmh = new WeightedMinHash(1000, dict_size, 123456);
+
+        Random rand = new Random(1234);
+        int[] ids1 = new int[200];
+        float[] weights1 = new float[200];
+        float[] weights2 = new float[200];
+        double sum_min = 0;
+        double sum_max = 0;
+        for (int i = 0; i < ids1.length; i++) {
+            ids1[i] = 2 * i;
+            weights1[i] = 10 * rand.nextFloat();
+            weights2[i] = 10 * rand.nextFloat();
+            sum_min += Math.min(weights1[i], weights2[i]);
+            sum_max += Math.max(weights1[i], weights2[i]);
+        }
+
+        int[] sig1 = wmh.signature(ids1, weights1);
+        int[] sig2 = wmh.signature(ids1, weights2);
+        assertEquals(sum_min / sum_max, wmh.similarity(sig1, sig2), 0.05);
+
+        // Same vector, with the ids in reverse order
+        int[] reversed_ids = new int[ids1.length];
+        float[] reversed_weights = new float[ids1.length];
+        for (int i = 0; i < ids1.length; i++) {
+            reversed_ids[i] = ids1[ids1.length - 1 - i];
+            reversed_weights[i] = weights1[ids1.length - 1 - i];
+        }
+        assertArrayEquals(
+                sig1, wmh.signature(reversed_ids, reversed_weights));
+
+        LSHMinHash lsh = new LSHMinHash(10, 100, dict_size);
+        assertEquals(10, lsh.hashSignature(sig1).length);
+    }
+
+    /**
+     * Test that with binary weights, the signatures estimate the Jaccard
+     * index of the sets.
+     */
+    @Test
+    public void testBinaryWeights() {
+        WeightedMinHash wmh = new WeightedMinHash(1000, 1000, 1);
+
+        // 300 common elements out of 500: J = 0.6
+        int[] ids1 = new int[400];
+        int[] ids2 = new int[400];
+        float[] weights = new float[400];
+        for (int i = 0; i < 400; i++) {
+            ids1[i] = i;
+            ids2[i] = i + 100;
+            weights[i] = 1;
+        }
+
+        assertEquals(
+                0.6,
+                wmh.similarity(
+                        wmh.signature(ids1, weights),
+                        wmh.signature(ids2, weights)),
+                0.05);
+    }
+}